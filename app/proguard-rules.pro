@@ -15,3 +15,6 @@
 #-keepclassmembers class fqcn.of.javascript.interface.for.webview {
 #   public *;
 #}
+
+# Glide instantiates the GlideModule named in the manifest by reflection
+-keep public class * implements com.bumptech.glide.module.GlideModule
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.gcm;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import org.json.JSONObject;
+
+/**
+ * Hands messages to {@link MyGcmListenerService} the way GCM does, with the payload as a string
+ * under "data", but locally and synchronously.
+ */
+class FakeGcmDispatcher {
+    private final Context mContext;
+
+    FakeGcmDispatcher(Context context) {
+        mContext = context;
+    }
+
+    void send(JSONObject payload) {
+        Bundle data = new Bundle();
+        data.putString("data", payload.toString());
+        MyGcmListenerService.handleMessage(mContext, data);
+    }
+}
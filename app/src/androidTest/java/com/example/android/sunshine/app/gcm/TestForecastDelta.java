@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.gcm;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherDao;
+import com.example.android.sunshine.app.data.WeatherRow;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+public class TestForecastDelta extends AndroidTestCase {
+    private static final String LOCATION = "99705";
+
+    private long mToday;
+    private FakeGcmDispatcher mDispatcher;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDispatcher = new FakeGcmDispatcher(getContext());
+        insertForecast();
+    }
+
+    // Today and tomorrow in the default time zone, stored the way the sync adapter does
+    private void insertForecast() {
+        deleteAllRecords();
+        mToday = dayDate(0);
+
+        ContentResolver resolver = getContext().getContentResolver();
+        ContentValues location = new ContentValues();
+        location.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, LOCATION);
+        location.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, "North Pole");
+        location.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, 64.7488);
+        location.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, -147.353);
+        Uri locationUri = resolver.insert(WeatherContract.LocationEntry.CONTENT_URI, location);
+        long locationId = Long.parseLong(locationUri.getLastPathSegment());
+
+        for (int day = 0; day < 2; day++) {
+            ContentValues weather = new ContentValues();
+            weather.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
+            weather.put(WeatherContract.WeatherEntry.COLUMN_DATE, dayDate(day));
+            weather.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, 800);
+            weather.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, "Clear");
+            weather.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 20.0);
+            weather.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, 10.0);
+            weather.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, 50.0);
+            weather.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, 1010.0);
+            weather.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, 2.5);
+            weather.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, 90.0);
+            resolver.insert(WeatherContract.WeatherEntry.CONTENT_URI, weather);
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAllRecords();
+        super.tearDown();
+    }
+
+    private void deleteAllRecords() {
+        ContentResolver resolver = getContext().getContentResolver();
+        resolver.delete(WeatherContract.WeatherEntry.CONTENT_URI, null, null);
+        resolver.delete(WeatherContract.LocationEntry.CONTENT_URI, null, null);
+    }
+
+    private static long dayDate(int dayOffset) {
+        Time dayTime = new Time();
+        dayTime.setToNow();
+        int julianToday = Time.getJulianDay(System.currentTimeMillis(), dayTime.gmtoff);
+        return dayTime.setJulianDay(julianToday + dayOffset);
+    }
+
+    // The calendar date of a stored day, as the server names it
+    private static String isoDate(int dayOffset) {
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(dayDate(dayOffset));
+    }
+
+    private WeatherRow[] readForecast() {
+        return WeatherDao.readForecast(getContext().getContentResolver(), LOCATION, mToday, 0);
+    }
+
+    private static JSONObject forecastMessage(String location, JSONObject... days)
+            throws JSONException {
+        JSONArray dayArray = new JSONArray();
+        for (JSONObject day : days) {
+            dayArray.put(day);
+        }
+        return new JSONObject().put(ForecastDelta.KEY_FORECAST,
+                new JSONObject().put("location", location).put("days", dayArray));
+    }
+
+    public void testDeltaChangesOnlyTheGivenFields() throws JSONException {
+        mDispatcher.send(forecastMessage(LOCATION,
+                new JSONObject()
+                        .put(WeatherContract.WeatherEntry.COLUMN_DATE, isoDate(1))
+                        .put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 25.5)
+                        .put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, 500)
+                        .put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, "Rain")));
+
+        WeatherRow[] rows = readForecast();
+        assertEquals(2, rows.length);
+
+        assertEquals("Today must be left alone", 800, rows[0].weatherId);
+        assertEquals(20.0, rows[0].high, 0.01);
+
+        assertEquals(500, rows[1].weatherId);
+        assertEquals("Rain", rows[1].description);
+        assertEquals(25.5, rows[1].high, 0.01);
+        assertEquals("Fields not in the delta must keep their value", 10.0, rows[1].low, 0.01);
+        assertEquals(1010.0, rows[1].pressure, 0.1);
+    }
+
+    public void testDeltaReplacesTheDescriptionOfAKnownCondition() throws JSONException {
+        mDispatcher.send(forecastMessage(LOCATION,
+                new JSONObject()
+                        .put(WeatherContract.WeatherEntry.COLUMN_DATE, isoDate(0))
+                        .put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, 800)
+                        .put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, "Sunny")));
+
+        assertEquals("Sunny", readForecast()[0].description);
+        assertEquals("Sunny", WeatherDao.readToday(getContext().getContentResolver(), LOCATION)
+                .description);
+    }
+
+    public void testDeltaFindsTheDayInAnyTimeZone() throws JSONException {
+        TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            // Far west and far east of UTC, where a day's UTC midnight falls on another local day
+            for (String zone : new String[]{"America/Los_Angeles", "Pacific/Kiritimati"}) {
+                TimeZone.setDefault(TimeZone.getTimeZone(zone));
+                insertForecast();
+
+                mDispatcher.send(forecastMessage(LOCATION,
+                        new JSONObject()
+                                .put(WeatherContract.WeatherEntry.COLUMN_DATE, isoDate(1))
+                                .put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 25.5)));
+
+                WeatherRow[] rows = readForecast();
+                assertEquals(zone, 2, rows.length);
+                assertEquals(zone, 20.0, rows[0].high, 0.01);
+                assertEquals(zone, 25.5, rows[1].high, 0.01);
+            }
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    public void testMalformedDateIsIgnored() throws JSONException {
+        mDispatcher.send(forecastMessage(LOCATION,
+                new JSONObject()
+                        .put(WeatherContract.WeatherEntry.COLUMN_DATE, mToday)
+                        .put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 30.0)));
+
+        assertEquals(20.0, readForecast()[0].high, 0.01);
+    }
+
+    public void testDeltaUpdatesTodaySummary() throws JSONException {
+        mDispatcher.send(forecastMessage(LOCATION,
+                new JSONObject()
+                        .put(WeatherContract.WeatherEntry.COLUMN_DATE, isoDate(0))
+                        .put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, 3.0)));
+
+        assertEquals(3.0, WeatherDao.readToday(getContext().getContentResolver(), LOCATION).low,
+                0.01);
+    }
+
+    public void testDeltaForUnknownLocationIsIgnored() throws JSONException {
+        mDispatcher.send(forecastMessage("00000",
+                new JSONObject()
+                        .put(WeatherContract.WeatherEntry.COLUMN_DATE, isoDate(0))
+                        .put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 30.0)));
+
+        assertEquals(20.0, readForecast()[0].high, 0.01);
+    }
+
+    public void testMalformedDeltaIsIgnoredAsAWhole() throws JSONException {
+        mDispatcher.send(forecastMessage(LOCATION,
+                new JSONObject()
+                        .put(WeatherContract.WeatherEntry.COLUMN_DATE, isoDate(0))
+                        .put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, 30.0),
+                new JSONObject()
+                        .put(WeatherContract.WeatherEntry.COLUMN_DATE, isoDate(1))
+                        .put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, 500)));
+
+        assertEquals(20.0, readForecast()[0].high, 0.01);
+        assertEquals(800, readForecast()[1].weatherId);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.wear;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.google.android.gms.wearable.DataMap;
+
+public class TestWeatherPayload extends AndroidTestCase {
+    private static final String LOG_TAG = TestWeatherPayload.class.getSimpleName();
+    private static final int FIRST_DAY = 17000;
+
+    private static WeatherPayload.Day[] createWeek() {
+        WeatherPayload.Day[] days = new WeatherPayload.Day[7];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = new WeatherPayload.Day(FIRST_DAY + i, 200 + i * 100, 21.37 - i * 5, -40.04 + i);
+        }
+        return days;
+    }
+
+    public void testRoundTrip() {
+        WeatherPayload.Day[] week = createWeek();
+        WeatherPayload payload = WeatherPayload.decode(WeatherPayload.encode(false, week));
+
+        assertNotNull(payload);
+        assertFalse(payload.isMetric);
+        assertEquals(week.length, payload.days.length);
+        for (int i = 0; i < week.length; i++) {
+            assertEquals(week[i].epochDay, payload.days[i].epochDay);
+            assertEquals(week[i].weatherId, payload.days[i].weatherId);
+            // Temperatures keep a tenth of a degree
+            assertEquals(week[i].high, payload.days[i].high, 0.05);
+            assertEquals(week[i].low, payload.days[i].low, 0.05);
+        }
+        assertSame(payload.days[3], payload.getDay(FIRST_DAY + 3));
+        assertNull(payload.getDay(FIRST_DAY - 1));
+    }
+
+    public void testGapsBetweenDays() {
+        WeatherPayload.Day[] days = {
+                new WeatherPayload.Day(FIRST_DAY, 800, 10, 5),
+                new WeatherPayload.Day(FIRST_DAY + 200, 801, 11, 6)
+        };
+        WeatherPayload payload = WeatherPayload.decode(WeatherPayload.encode(true, days));
+
+        assertNotNull(payload);
+        assertTrue(payload.isMetric);
+        assertEquals(FIRST_DAY + 200, payload.days[1].epochDay);
+    }
+
+    public void testRejectsUnreadablePayloads() {
+        byte[] data = WeatherPayload.encode(true, createWeek());
+
+        byte[] newerVersion = data.clone();
+        newerVersion[0] = WeatherPayload.VERSION + 1;
+        assertNull(WeatherPayload.decode(newerVersion));
+
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertNull(WeatherPayload.decode(truncated));
+
+        assertNull(WeatherPayload.decode(null));
+    }
+
+    public void testSkipsFieldsAddedToDays() {
+        WeatherPayload.Day[] week = createWeek();
+        byte[] data = WeatherPayload.encode(true, week);
+
+        // Append one unknown byte to every day, as a later version could
+        int daySize = WeatherPayload.DAY_SIZE + 1;
+        byte[] extended = new byte[WeatherPayload.HEADER_SIZE + week.length * daySize];
+        System.arraycopy(data, 0, extended, 0, WeatherPayload.HEADER_SIZE);
+        extended[5] = (byte) daySize;
+        for (int i = 0; i < week.length; i++) {
+            System.arraycopy(data, WeatherPayload.HEADER_SIZE + i * WeatherPayload.DAY_SIZE,
+                    extended, WeatherPayload.HEADER_SIZE + i * daySize, WeatherPayload.DAY_SIZE);
+        }
+        WeatherPayload payload = WeatherPayload.decode(extended);
+
+        assertNotNull(payload);
+        assertEquals(week[6].weatherId, payload.days[6].weatherId);
+        assertEquals(week[6].low, payload.days[6].low, 0.05);
+    }
+
+    public void testSmallerThanDataMap() {
+        long timestamp = System.currentTimeMillis();
+
+        // What was sent before: one day, formatted on the phone
+        DataMap legacy = new DataMap();
+        legacy.putLong(WeatherConstants.KEY_TIMESTAMP, timestamp);
+        legacy.putString(WeatherConstants.KEY_LOW_TEMP, "-40\u00B0");
+        legacy.putString(WeatherConstants.KEY_HIGH_TEMP, "21\u00B0");
+        legacy.putInt(WeatherConstants.KEY_WEATHER_ICON, 200);
+        int legacySize = legacy.toByteArray().length;
+
+        byte[] week = WeatherPayload.encode(true, createWeek());
+        DataMap current = new DataMap();
+        current.putLong(WeatherConstants.KEY_TIMESTAMP, timestamp);
+        current.putByteArray(WeatherConstants.KEY_FORECAST, week);
+        int currentSize = current.toByteArray().length;
+
+        Log.d(LOG_TAG, "One day as a DataMap: " + legacySize + " bytes; a week as a payload: "
+                + week.length + " bytes, " + currentSize + " bytes in its DataMap");
+        assertEquals(WeatherPayload.HEADER_SIZE + 7 * WeatherPayload.DAY_SIZE, week.length);
+        assertTrue("A week should take less than twice one day's DataMap",
+                currentSize < legacySize * 2);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+
+import com.bumptech.glide.DrawableRequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Warms Glide's caches with the art of a freshly loaded forecast, so rows and the detail view
+ * show it as soon as they are bound instead of popping it in afterwards.
+ *
+ * Glide only finds a preloaded image again if the later request asks for it at the same size
+ * and with the same transformation, so the list and the detail view build their requests
+ * through {@link #request} as well.
+ */
+public class ArtPreloader {
+
+    private ArtPreloader() {
+    }
+
+    /**
+     * The request for a piece of art at the given size.  The original download is kept on
+     * disk as well, so the other size decodes from there instead of fetching it again.
+     */
+    public static DrawableRequestBuilder<String> request(RequestManager glide, String artUrl,
+                                                         int sizePx) {
+        return glide.load(artUrl)
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .override(sizePx, sizePx)
+                .fitCenter();
+    }
+
+    /** Size of the art in a forecast list row. */
+    public static int getListSize(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.list_icon);
+    }
+
+    /** Size of the art in the today row and in the detail view. */
+    public static int getDetailSize(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.today_icon);
+    }
+
+    /**
+     * Starts loading the art of the given items at list size, and at detail size for when
+     * one of them is opened.  The forecast repeats the same few conditions, so every image is
+     * only requested once.
+     */
+    public static void preload(Context context, RequestManager glide, List<ForecastItem> items) {
+        int listSize = getListSize(context);
+        int detailSize = getDetailSize(context);
+        HashSet<String> artUrls = new HashSet<>();
+        for (int i = 0, count = items.size(); i < count; i++) {
+            String artUrl = items.get(i).artUrl;
+            if (null == artUrl || !artUrls.add(artUrl)) {
+                continue;
+            }
+            request(glide, artUrl, listSize).preload(listSize, listSize);
+            request(glide, artUrl, detailSize).preload(detailSize, detailSize);
+        }
+    }
+}
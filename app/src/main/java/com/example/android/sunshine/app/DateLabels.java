@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.text.format.DateUtils;
+import android.text.format.Time;
+import android.util.SparseArray;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * Builds the day labels behind the date helpers in {@link Utility} and remembers them per
+ * Julian day, so that binding a list row or a widget row doesn't format the same date again.
+ *
+ * The labels depend on what day it is ("Today", "Tomorrow", a day name within the week), on
+ * the time zone and on the locale.  They are all dropped when the day rolls over or the locale
+ * changes, which is checked on every call, and when the time zone or the clock is changed, which
+ * {@link TimeChangeReceiver} reports through {@link #invalidate()}.  A warm lookup allocates
+ * nothing.
+ */
+public final class DateLabels {
+
+    private static final int FRIENDLY = 0;
+    private static final int FRIENDLY_LONG_TODAY = 1;
+    private static final int FULL_FRIENDLY = 2;
+    private static final int DAY_NAME = 3;
+    private static final int MONTH_DAY = 4;
+    private static final int LABEL_KINDS = 5;
+
+    private static final Object sLock = new Object();
+
+    // One cache per kind of label, keyed by Julian day.
+    private static final SparseArray<String>[] sLabels = newLabelCaches();
+
+    private static Locale sLocale;
+    private static long sGmtoff;
+    private static int sToday;
+    // The current day, offset and locale are trusted until then.  This is the next midnight,
+    // or sooner, so that a daylight saving change doesn't go unnoticed for long.
+    private static long sCheckAfter;
+
+    private static SimpleDateFormat sDayNameFormat;
+    private static SimpleDateFormat sMonthDayFormat;
+    private static SimpleDateFormat sShortDateFormat;
+
+    private DateLabels() {
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SparseArray<String>[] newLabelCaches() {
+        SparseArray<String>[] caches = new SparseArray[LABEL_KINDS];
+        for (int i = 0; i < LABEL_KINDS; i++) {
+            caches[i] = new SparseArray<>();
+        }
+        return caches;
+    }
+
+    /**
+     * Forgets every label, for when the time zone or the clock changed.
+     */
+    public static void invalidate() {
+        synchronized (sLock) {
+            sCheckAfter = 0;
+            sLocale = null;
+        }
+    }
+
+    /**
+     * @see Utility#getFriendlyDayString(Context, long, boolean)
+     */
+    public static String getFriendlyDayString(Context context, long dateInMillis,
+                                              boolean displayLongToday) {
+        synchronized (sLock) {
+            int julianDay = julianDayOf(dateInMillis);
+            int kind = displayLongToday ? FRIENDLY_LONG_TODAY : FRIENDLY;
+            String label = sLabels[kind].get(julianDay);
+            if (null == label) {
+                // The day string for forecast uses the following logic:
+                // For today: "Today, June 8"
+                // For tomorrow:  "Tomorrow"
+                // For the next 5 days: "Wednesday" (just the day name)
+                // For all days after that: "Mon Jun 8"
+                if (displayLongToday && julianDay == sToday) {
+                    label = context.getString(R.string.format_full_friendly_date,
+                            context.getString(R.string.today),
+                            getFormattedMonthDay(dateInMillis));
+                } else if (julianDay < sToday + 7) {
+                    label = getDayName(context, dateInMillis);
+                } else {
+                    label = sShortDateFormat.format(dateInMillis);
+                }
+                sLabels[kind].put(julianDay, label);
+            }
+            return label;
+        }
+    }
+
+    /**
+     * @see Utility#getFullFriendlyDayString(Context, long)
+     */
+    public static String getFullFriendlyDayString(Context context, long dateInMillis) {
+        synchronized (sLock) {
+            int julianDay = julianDayOf(dateInMillis);
+            String label = sLabels[FULL_FRIENDLY].get(julianDay);
+            if (null == label) {
+                label = context.getString(R.string.format_full_friendly_date,
+                        getDayName(context, dateInMillis),
+                        getFormattedMonthDay(dateInMillis));
+                sLabels[FULL_FRIENDLY].put(julianDay, label);
+            }
+            return label;
+        }
+    }
+
+    /**
+     * @see Utility#getDayName(Context, long)
+     */
+    public static String getDayName(Context context, long dateInMillis) {
+        synchronized (sLock) {
+            int julianDay = julianDayOf(dateInMillis);
+            String label = sLabels[DAY_NAME].get(julianDay);
+            if (null == label) {
+                if (julianDay == sToday) {
+                    label = context.getString(R.string.today);
+                } else if (julianDay == sToday + 1) {
+                    label = context.getString(R.string.tomorrow);
+                } else {
+                    // Otherwise, the format is just the day of the week (e.g "Wednesday").
+                    label = sDayNameFormat.format(dateInMillis);
+                }
+                sLabels[DAY_NAME].put(julianDay, label);
+            }
+            return label;
+        }
+    }
+
+    /**
+     * @see Utility#getFormattedMonthDay(Context, long)
+     */
+    public static String getFormattedMonthDay(long dateInMillis) {
+        synchronized (sLock) {
+            int julianDay = julianDayOf(dateInMillis);
+            String label = sLabels[MONTH_DAY].get(julianDay);
+            if (null == label) {
+                label = sMonthDayFormat.format(dateInMillis);
+                sLabels[MONTH_DAY].put(julianDay, label);
+            }
+            return label;
+        }
+    }
+
+    // Must be called with sLock held.
+    private static int julianDayOf(long dateInMillis) {
+        long now = System.currentTimeMillis();
+        Locale locale = Locale.getDefault();
+        if (now >= sCheckAfter || locale != sLocale) {
+            refresh(now, locale);
+        }
+        return Time.getJulianDay(dateInMillis, sGmtoff);
+    }
+
+    private static void refresh(long now, Locale locale) {
+        Time time = new Time();
+        time.set(now);
+        int today = Time.getJulianDay(now, time.gmtoff);
+        if (today != sToday || time.gmtoff != sGmtoff || locale != sLocale) {
+            for (SparseArray<String> labels : sLabels) {
+                labels.clear();
+            }
+        }
+        if (locale != sLocale) {
+            sDayNameFormat = new SimpleDateFormat("EEEE", locale);
+            sMonthDayFormat = new SimpleDateFormat("MMMM dd", locale);
+            sShortDateFormat = new SimpleDateFormat("EEE MMM dd", locale);
+        }
+        sLocale = locale;
+        sGmtoff = time.gmtoff;
+        sToday = today;
+        long nextMidnight = time.setJulianDay(today + 1);
+        sCheckAfter = Math.min(nextMidnight, now + DateUtils.HOUR_IN_MILLIS);
+    }
+}
@@ -16,7 +16,6 @@
 package com.example.android.sunshine.app;
 
 import android.content.Context;
-import android.database.Cursor;
 import android.os.Build;
 import android.os.Bundle;
 import android.support.v4.view.ViewCompat;
@@ -30,13 +29,15 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
-import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.List;
 
 /**
- * {@link ForecastAdapter} exposes a list of weather forecasts
- * from a {@link android.database.Cursor} to a {@link android.support.v7.widget.RecyclerView}.
+ * {@link ForecastAdapter} exposes a list of weather forecasts, as formatted by
+ * {@link ForecastLoader}, to a {@link android.support.v7.widget.RecyclerView}.
  */
-public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapterViewHolder> {
+public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapterViewHolder>
+        implements ItemChoiceManager.PositionLookup {
 
     private static final int VIEW_TYPE_TODAY = 0;
     private static final int VIEW_TYPE_FUTURE_DAY = 1;
@@ -44,7 +45,9 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
     // Flag to determine if we want to use a separate view for "today".
     private boolean mUseTodayLayout = true;
 
-    private Cursor mCursor;
+    private List<ForecastItem> mItems;
+    // Position of each item by its date, kept in step with mItems
+    private LongIntMap mPositions;
     final private Context mContext;
     final private ForecastAdapterOnClickHandler mClickHandler;
     final private View mEmptyView;
@@ -73,9 +76,11 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         @Override
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
-            mCursor.moveToPosition(adapterPosition);
-            int dateColumnIndex = mCursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_DATE);
-            mClickHandler.onClick(mCursor.getLong(dateColumnIndex), this);
+            // The row is being rebound after a change; it has no item to report yet
+            if (adapterPosition == RecyclerView.NO_POSITION) {
+                return;
+            }
+            mClickHandler.onClick(mItems.get(adapterPosition).date, this);
             mICM.onClick(this);
         }
     }
@@ -88,6 +93,9 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         mContext = context;
         mClickHandler = dh;
         mEmptyView = emptyView;
+        // Rows are keyed by their date, so selections and animations follow a day around
+        // when the rows before it come and go.
+        setHasStableIds(true);
         mICM = new ItemChoiceManager(this);
         mICM.setChoiceMode(choiceMode);
     }
@@ -124,63 +132,54 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
 
     @Override
     public void onBindViewHolder(ForecastAdapterViewHolder forecastAdapterViewHolder, int position) {
-        mCursor.moveToPosition(position);
-        int weatherId = mCursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
+        ForecastItem item = mItems.get(position);
         int defaultImage;
-        boolean useLongToday;
+        int artSize;
+        String dateText;
 
         switch (getItemViewType(position)) {
             case VIEW_TYPE_TODAY:
-                defaultImage = Utility.getArtResourceForWeatherCondition(weatherId);
-                useLongToday = true;
+                defaultImage = item.artResource;
+                artSize = ArtPreloader.getDetailSize(mContext);
+                dateText = item.longDateText;
                 break;
             default:
-                defaultImage = Utility.getIconResourceForWeatherCondition(weatherId);
-                useLongToday = false;
+                defaultImage = item.iconResource;
+                artSize = ArtPreloader.getListSize(mContext);
+                dateText = item.dateText;
         }
 
-        if ( Utility.usingLocalGraphics(mContext) ) {
+        if ( null == item.artUrl ) {
             forecastAdapterViewHolder.mIconView.setImageResource(defaultImage);
         } else {
-            Glide.with(mContext)
-                    .load(Utility.getArtUrlForWeatherCondition(mContext, weatherId))
+            // Built like the preload requests so that it finds the art they cached
+            ArtPreloader.request(Glide.with(mContext), item.artUrl, artSize)
                     .error(defaultImage)
                     .crossFade()
                     .into(forecastAdapterViewHolder.mIconView);
         }
 
         // this enables better animations. even if we lose state due to a device rotation,
-        // the animator can use this to re-find the original view
-        ViewCompat.setTransitionName(forecastAdapterViewHolder.mIconView, "iconView" + position);
-
-        // Read date from cursor
-        long dateInMillis = mCursor.getLong(ForecastFragment.COL_WEATHER_DATE);
+        // the animator can use this to re-find the original view.  It is keyed by the date, as
+        // rows that only moved aren't rebound and would otherwise keep a stale position.
+        ViewCompat.setTransitionName(forecastAdapterViewHolder.mIconView, "iconView" + item.date);
 
         // Find TextView and set formatted date on it
-        forecastAdapterViewHolder.mDateView.setText(Utility.getFriendlyDayString(mContext, dateInMillis, useLongToday));
-
-        // Read weather forecast from cursor
-        String description = Utility.getStringForWeatherCondition(mContext, weatherId);
+        forecastAdapterViewHolder.mDateView.setText(dateText);
 
         // Find TextView and set weather forecast on it
-        forecastAdapterViewHolder.mDescriptionView.setText(description);
-        forecastAdapterViewHolder.mDescriptionView.setContentDescription(mContext.getString(R.string.a11y_forecast, description));
+        forecastAdapterViewHolder.mDescriptionView.setText(item.description);
+        forecastAdapterViewHolder.mDescriptionView.setContentDescription(item.descriptionA11y);
 
         // For accessibility, we don't want a content description for the icon field
         // because the information is repeated in the description view and the icon
         // is not individually selectable
 
-        // Read high temperature from cursor
-        double high = mCursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP);
-        String highString = Utility.formatTemperature(mContext, high);
-        forecastAdapterViewHolder.mHighTempView.setText(highString);
-        forecastAdapterViewHolder.mHighTempView.setContentDescription(mContext.getString(R.string.a11y_high_temp, highString));
+        forecastAdapterViewHolder.mHighTempView.setText(item.highText);
+        forecastAdapterViewHolder.mHighTempView.setContentDescription(item.highA11y);
 
-        // Read low temperature from cursor
-        double low = mCursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
-        String lowString = Utility.formatTemperature(mContext, low);
-        forecastAdapterViewHolder.mLowTempView.setText(lowString);
-        forecastAdapterViewHolder.mLowTempView.setContentDescription(mContext.getString(R.string.a11y_low_temp, lowString));
+        forecastAdapterViewHolder.mLowTempView.setText(item.lowText);
+        forecastAdapterViewHolder.mLowTempView.setContentDescription(item.lowA11y);
 
         mICM.onBindViewHolder(forecastAdapterViewHolder, position);
     }
@@ -206,20 +205,64 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         return (position == 0 && mUseTodayLayout) ? VIEW_TYPE_TODAY : VIEW_TYPE_FUTURE_DAY;
     }
 
+    @Override
+    public long getItemId(int position) {
+        return mItems.get(position).date;
+    }
+
     @Override
     public int getItemCount() {
-        if ( null == mCursor ) return 0;
-        return mCursor.getCount();
+        if ( null == mItems ) return 0;
+        return mItems.size();
+    }
+
+    public void swapItems(List<ForecastItem> newItems) {
+        swapItems(newItems, null == newItems ? null : ForecastDiff.indexByDate(newItems));
     }
 
-    public void swapCursor(Cursor newCursor) {
-        mCursor = newCursor;
+    private void swapItems(List<ForecastItem> newItems, LongIntMap positions) {
+        mItems = newItems;
+        mPositions = positions;
         notifyDataSetChanged();
         mEmptyView.setVisibility(getItemCount() == 0 ? View.VISIBLE : View.GONE);
     }
 
-    public Cursor getCursor() {
-        return mCursor;
+    /**
+     * Moves to the items of a new load.  If the load was diffed against what is showing now,
+     * only the rows that actually changed are rebound; otherwise everything is.
+     */
+    public void swapItems(ForecastDiff diff) {
+        if (mItems == diff.newItems) {
+            // Redelivery of the load that is already showing
+            return;
+        }
+        if (diff.appliesTo(mItems)) {
+            mItems = diff.newItems;
+            mPositions = diff.newPositions;
+            diff.dispatchTo(this);
+            mEmptyView.setVisibility(getItemCount() == 0 ? View.VISIBLE : View.GONE);
+        } else {
+            swapItems(diff.newItems, diff.newPositions);
+        }
+    }
+
+    public List<ForecastItem> getItems() {
+        return mItems;
+    }
+
+    /**
+     * Returns the position of the day with the given (normalized) date, or
+     * {@link RecyclerView#NO_POSITION} if it isn't in the list.
+     */
+    public int getPositionForDate(long date) {
+        if ( null == mPositions ) return RecyclerView.NO_POSITION;
+        return mPositions.get(date, RecyclerView.NO_POSITION);
+    }
+
+    @Override
+    public int getPositionForId(long id) {
+        // Item ids are the dates
+        return getPositionForDate(id);
     }
 
     public void selectView(RecyclerView.ViewHolder viewHolder) {
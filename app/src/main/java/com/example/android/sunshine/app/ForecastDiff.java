@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The difference between two loads of the forecast, as the adapter notifications that turn
+ * the old list into the new one.
+ *
+ * Both lists are sorted by date and hold one row per date, so rather than a general purpose
+ * diff this is a single merge walk over the two: a date only in the old list is a removal, a
+ * date only in the new list is an insertion, and a date in both whose row reads differently is
+ * a change.  It is computed on the loader thread; the UI thread only replays it.
+ */
+public class ForecastDiff {
+
+    private static final int INSERT = 0;
+    private static final int REMOVE = 1;
+    private static final int CHANGE = 2;
+
+    public final List<ForecastItem> oldItems;
+    public final List<ForecastItem> newItems;
+    // Position of each of the new items, by date
+    final LongIntMap newPositions;
+
+    // Packed (operation, position, count) triples, in dispatch order
+    private int[] mOps = new int[12];
+    private int mOpsLength;
+
+    ForecastDiff(List<ForecastItem> oldItems, List<ForecastItem> newItems) {
+        this.oldItems = oldItems;
+        this.newItems = newItems;
+        this.newPositions = indexByDate(newItems);
+        if (null != oldItems) {
+            compute(oldItems, newItems);
+        }
+    }
+
+    private void compute(List<ForecastItem> oldItems, List<ForecastItem> newItems) {
+        int oldSize = oldItems.size();
+        int newSize = newItems.size();
+        int i = 0;
+        int j = 0;
+        // Position in the adapter as the operations so far have left it
+        int position = 0;
+        while (i < oldSize || j < newSize) {
+            ForecastItem oldItem = i < oldSize ? oldItems.get(i) : null;
+            ForecastItem newItem = j < newSize ? newItems.get(j) : null;
+            if (null == newItem || (null != oldItem && oldItem.date < newItem.date)) {
+                add(REMOVE, position);
+                i++;
+            } else if (null == oldItem || oldItem.date > newItem.date) {
+                add(INSERT, position);
+                position++;
+                j++;
+            } else {
+                if (!oldItem.hasSameContent(newItem)) {
+                    add(CHANGE, position);
+                }
+                position++;
+                i++;
+                j++;
+            }
+        }
+
+        // The first row has its own layout, so a different first day means it has to be
+        // rebound even if that day's row didn't change.
+        if (oldSize > 0 && newSize > 0 && oldItems.get(0).date != newItems.get(0).date) {
+            add(CHANGE, 0);
+        }
+    }
+
+    // Appends an operation on one row, merging it into the previous one when they are adjacent.
+    private void add(int op, int position) {
+        if (mOpsLength > 0 && mOps[mOpsLength - 3] == op) {
+            int lastPosition = mOps[mOpsLength - 2];
+            int lastCount = mOps[mOpsLength - 1];
+            // Removals all happen at the same position; insertions and changes move along.
+            if ((op == REMOVE && position == lastPosition)
+                    || (op != REMOVE && position == lastPosition + lastCount)) {
+                mOps[mOpsLength - 1] = lastCount + 1;
+                return;
+            }
+        }
+        if (mOpsLength + 3 > mOps.length) {
+            int[] ops = new int[mOps.length * 2];
+            System.arraycopy(mOps, 0, ops, 0, mOpsLength);
+            mOps = ops;
+        }
+        mOps[mOpsLength++] = op;
+        mOps[mOpsLength++] = position;
+        mOps[mOpsLength++] = 1;
+    }
+
+    /**
+     * Whether the diff describes how to get from the given list to the new one.  If not, the
+     * adapter has to fall back to a full refresh.
+     */
+    public boolean appliesTo(List<ForecastItem> currentItems) {
+        return null != oldItems && oldItems == currentItems;
+    }
+
+    /**
+     * Sends the fine-grained notifications for this diff to the adapter.  Call it right after
+     * the adapter switched to {@link #newItems}.
+     */
+    public void dispatchTo(RecyclerView.Adapter adapter) {
+        for (int i = 0; i < mOpsLength; i += 3) {
+            int position = mOps[i + 1];
+            int count = mOps[i + 2];
+            switch (mOps[i]) {
+                case INSERT:
+                    adapter.notifyItemRangeInserted(position, count);
+                    break;
+                case REMOVE:
+                    adapter.notifyItemRangeRemoved(position, count);
+                    break;
+                case CHANGE:
+                    adapter.notifyItemRangeChanged(position, count);
+                    break;
+            }
+        }
+    }
+
+    static LongIntMap indexByDate(List<ForecastItem> items) {
+        int size = items.size();
+        LongIntMap positions = new LongIntMap(size);
+        for (int i = 0; i < size; i++) {
+            positions.put(items.get(i).date, i);
+        }
+        return positions;
+    }
+
+    static ForecastDiff empty() {
+        return new ForecastDiff(null, Collections.<ForecastItem>emptyList());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import com.example.android.sunshine.app.data.WeatherRow;
+
+/**
+ * One fully formatted row of the forecast list.  Built off the main thread by
+ * {@link ForecastLoader}, so that binding a row is nothing but handing these fields to views.
+ */
+public final class ForecastItem {
+    public final long date;
+    public final int weatherId;
+    public final double coordLat;
+    public final double coordLong;
+
+    // Image resources for the large "today" layout and for the regular list item
+    public final int artResource;
+    public final int iconResource;
+    // Remote art to load over the resources above, or null when using local graphics
+    public final String artUrl;
+
+    // The date as shown in the "today" layout, and everywhere else
+    public final String longDateText;
+    public final String dateText;
+
+    public final String description;
+    public final String descriptionA11y;
+    public final String highText;
+    public final String highA11y;
+    public final String lowText;
+    public final String lowA11y;
+
+    ForecastItem(Context context, WeatherRow row, boolean isMetric, boolean usingLocalGraphics) {
+        date = row.date;
+        weatherId = row.weatherId;
+        coordLat = row.coordLat;
+        coordLong = row.coordLong;
+
+        artResource = Utility.getArtResourceForWeatherCondition(weatherId);
+        iconResource = Utility.getIconResourceForWeatherCondition(weatherId);
+        artUrl = usingLocalGraphics ? null : Utility.getArtUrlForWeatherCondition(context, weatherId);
+
+        longDateText = Utility.getFriendlyDayString(context, date, true);
+        dateText = Utility.getFriendlyDayString(context, date, false);
+
+        description = Utility.getStringForWeatherCondition(context, weatherId);
+        descriptionA11y = context.getString(R.string.a11y_forecast, description);
+        highText = Utility.formatTemperature(context, row.high, isMetric);
+        highA11y = context.getString(R.string.a11y_high_temp, highText);
+        lowText = Utility.formatTemperature(context, row.low, isMetric);
+        lowA11y = context.getString(R.string.a11y_low_temp, lowText);
+    }
+
+    /**
+     * Whether a row showing the other item would look exactly like one showing this one.
+     */
+    boolean hasSameContent(ForecastItem other) {
+        return date == other.date
+                && artResource == other.artResource
+                && iconResource == other.iconResource
+                && TextUtils.equals(artUrl, other.artUrl)
+                && TextUtils.equals(longDateText, other.longDateText)
+                && TextUtils.equals(dateText, other.dateText)
+                && TextUtils.equals(description, other.description)
+                && TextUtils.equals(descriptionA11y, other.descriptionA11y)
+                && TextUtils.equals(highText, other.highText)
+                && TextUtils.equals(highA11y, other.highA11y)
+                && TextUtils.equals(lowText, other.lowText)
+                && TextUtils.equals(lowA11y, other.lowA11y);
+    }
+}
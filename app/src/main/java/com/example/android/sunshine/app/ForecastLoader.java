@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.v4.content.AsyncTaskLoader;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherDao;
+import com.example.android.sunshine.app.data.WeatherRow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Loads the forecast for the preferred location from today onwards and turns it into
+ * {@link ForecastItem}s on the loader's background thread.  Each load is also diffed against
+ * the one before it there, so the list only has to rebind the days that changed.
+ *
+ * Like CursorLoader, it reloads whenever the weather data changes.  The settings screen
+ * notifies the weather URI when the units or the icon pack change, so those are picked up
+ * the same way.  The day labels depend on the locale and on which day is today, neither of
+ * which touches the data, so a load made under another locale or on an earlier day is redone
+ * when the loader starts.
+ */
+public class ForecastLoader extends AsyncTaskLoader<ForecastDiff> {
+
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+    private ForecastDiff mDiff;
+    // The items of the last completed load, which the next one is diffed against.  Written and
+    // read on the loader thread.
+    private volatile List<ForecastItem> mLastItems;
+    private boolean mObserving;
+    // The locale and the Julian day the last load formatted its items with.  Written on the
+    // loader thread and read when the loader starts.
+    private volatile Locale mLoadedLocale;
+    private volatile int mLoadedJulianDay;
+
+    public ForecastLoader(Context context) {
+        super(context);
+    }
+
+    @Override
+    public ForecastDiff loadInBackground() {
+        mLoadedLocale = Locale.getDefault();
+        mLoadedJulianDay = today();
+        List<ForecastItem> items = loadItems();
+        ForecastDiff diff = new ForecastDiff(mLastItems, items);
+        mLastItems = items;
+        return diff;
+    }
+
+    private List<ForecastItem> loadItems() {
+        Context context = getContext();
+        String locationSetting = Utility.getPreferredLocation(context);
+        Cursor cursor = WeatherDao.queryForecast(context.getContentResolver(), locationSetting,
+                System.currentTimeMillis());
+        if (null == cursor) {
+            return Collections.emptyList();
+        }
+        try {
+            boolean isMetric = Utility.isMetric(context);
+            boolean usingLocalGraphics = Utility.usingLocalGraphics(context);
+            List<ForecastItem> items = new ArrayList<>(cursor.getCount());
+            WeatherRow row = new WeatherRow();
+            while (cursor.moveToNext()) {
+                WeatherDao.readRow(cursor, row);
+                items.add(new ForecastItem(context, row, isMetric, usingLocalGraphics));
+            }
+            return Collections.unmodifiableList(items);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public void deliverResult(ForecastDiff diff) {
+        if (isReset()) {
+            return;
+        }
+        mDiff = diff;
+        if (isStarted()) {
+            super.deliverResult(diff);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!mObserving) {
+            getContext().getContentResolver().registerContentObserver(
+                    WeatherContract.WeatherEntry.CONTENT_URI, true, mObserver);
+            mObserving = true;
+        }
+        if (mDiff != null) {
+            deliverResult(mDiff);
+        }
+        if (takeContentChanged() || mDiff == null || isFormatStale()) {
+            forceLoad();
+        }
+    }
+
+    private boolean isFormatStale() {
+        return !Locale.getDefault().equals(mLoadedLocale) || today() != mLoadedJulianDay;
+    }
+
+    private static int today() {
+        Time time = new Time();
+        time.setToNow();
+        return Time.getJulianDay(System.currentTimeMillis(), time.gmtoff);
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            mObserving = false;
+        }
+        mDiff = null;
+        mLastItems = null;
+        mLoadedLocale = null;
+    }
+}
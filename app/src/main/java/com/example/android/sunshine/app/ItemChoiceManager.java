@@ -28,10 +28,22 @@ import android.widget.AbsListView;
 import android.widget.Checkable;
 
 /**
- * The ItemChoiceManager class keeps track of which positions have been selected.  Note that it
- * doesn't take advantage of new adapter features to track changes in the underlying data.
+ * The ItemChoiceManager class keeps track of which positions have been selected.  If the adapter
+ * has stable ids, selections follow their items to new positions when the data changes.
  */
 public class ItemChoiceManager {
+
+    /**
+     * Implemented by adapters that already keep an index from item id to position, so that
+     * the ItemChoiceManager doesn't have to build its own after every data change.
+     */
+    public interface PositionLookup {
+        /**
+         * @return the position of the item with the given id, or RecyclerView.NO_POSITION
+         */
+        int getPositionForId(long id);
+    }
+
     private final String LOG_TAG = MainActivity.class.getSimpleName();
     private final String SELECTED_ITEMS_KEY = "SIK";
     private int mChoiceMode;
@@ -41,6 +53,27 @@ public class ItemChoiceManager {
         @Override
         public void onChanged() {
             super.onChanged();
+            confirmCheckedPositions();
+        }
+
+        // Inserts and removals move the checked items to other positions, so they are found
+        // again by id just as after a full change.
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            confirmCheckedPositions();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            confirmCheckedPositions();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            confirmCheckedPositions();
+        }
+
+        private void confirmCheckedPositions() {
             if (mAdapter != null && mAdapter.hasStableIds())
                 confirmCheckedPositionsById(mAdapter.getItemCount());
         }
@@ -53,14 +86,14 @@ public class ItemChoiceManager {
 
     public ItemChoiceManager(RecyclerView.Adapter adapter) {
         mAdapter = adapter;
+        mAdapter.registerAdapterDataObserver(mAdapterDataObserver);
     }
 
     /**
-     * How many positions in either direction we will search to try to
-     * find a checked item with a stable ID that moved position across
-     * a data set change. If the item isn't found it will be unselected.
+     * Position of every item by id, rebuilt after each data change for adapters that don't
+     * implement {@link PositionLookup}.
      */
-    private static final int CHECK_POSITION_SEARCH_DISTANCE = 20;
+    private LongIntMap mPositionsById;
 
     /**
      * Running state of which positions are currently checked
@@ -109,6 +142,11 @@ public class ItemChoiceManager {
             case AbsListView.CHOICE_MODE_MULTIPLE: {
                 boolean checked = mCheckStates.get(position, false);
                 mCheckStates.put(position, !checked);
+                if (checked) {
+                    mCheckedIdStates.delete(mAdapter.getItemId(position));
+                } else {
+                    mCheckedIdStates.put(mAdapter.getItemId(position), position);
+                }
                 // We directly call onBindViewHolder here because notifying that an item has
                 // changed on an item that has the focus causes it to lose focus, which makes
                 // keyboard navigation a bit annoying
@@ -154,40 +192,45 @@ public class ItemChoiceManager {
         mCheckedIdStates.clear();
     }
 
-    void confirmCheckedPositionsById(int oldItemCount) {
+    void confirmCheckedPositionsById(int itemCount) {
         // Clear out the positional check states, we'll rebuild it below from IDs.
         mCheckStates.clear();
+        if (mCheckedIdStates.size() == 0) {
+            return;
+        }
+
+        PositionLookup lookup = mAdapter instanceof PositionLookup ? (PositionLookup) mAdapter : null;
+        if (null == lookup) {
+            indexPositionsById(itemCount);
+        }
 
         for (int checkedIndex = 0; checkedIndex < mCheckedIdStates.size(); checkedIndex++) {
             final long id = mCheckedIdStates.keyAt(checkedIndex);
-            final int lastPos = mCheckedIdStates.valueAt(checkedIndex);
-
-            final long lastPosId = mAdapter.getItemId(lastPos);
-            if (id != lastPosId) {
-                // Look around to see if the ID is nearby. If not, uncheck it.
-                final int start = Math.max(0, lastPos - CHECK_POSITION_SEARCH_DISTANCE);
-                final int end = Math.min(lastPos + CHECK_POSITION_SEARCH_DISTANCE, oldItemCount);
-                boolean found = false;
-                for (int searchPos = start; searchPos < end; searchPos++) {
-                    final long searchId = mAdapter.getItemId(searchPos);
-                    if (id == searchId) {
-                        found = true;
-                        mCheckStates.put(searchPos, true);
-                        mCheckedIdStates.setValueAt(checkedIndex, searchPos);
-                        break;
-                    }
-                }
+            final int position = null != lookup ? lookup.getPositionForId(id)
+                    : mPositionsById.get(id, RecyclerView.NO_POSITION);
 
-                if (!found) {
-                    mCheckedIdStates.delete(id);
-                    checkedIndex--;
-                }
+            if (position == RecyclerView.NO_POSITION) {
+                // The item is gone, so uncheck it.
+                mCheckedIdStates.delete(id);
+                checkedIndex--;
             } else {
-                mCheckStates.put(lastPos, true);
+                mCheckStates.put(position, true);
+                mCheckedIdStates.setValueAt(checkedIndex, position);
             }
         }
     }
 
+    private void indexPositionsById(int itemCount) {
+        if (null == mPositionsById) {
+            mPositionsById = new LongIntMap(itemCount);
+        } else {
+            mPositionsById.clear();
+        }
+        for (int position = 0; position < itemCount; position++) {
+            mPositionsById.put(mAdapter.getItemId(position), position);
+        }
+    }
+
     public void onBindViewHolder(RecyclerView.ViewHolder vh, int position) {
         boolean checked = isItemChecked(position);
         if (vh.itemView instanceof Checkable) {
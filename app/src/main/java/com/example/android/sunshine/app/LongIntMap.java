@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import java.util.Arrays;
+
+/**
+ * A map from long keys to int values, for looking up list positions by id or date.
+ *
+ * Unlike {@link android.support.v4.util.LongSparseArray}, which binary searches and boxes its
+ * values, lookups here are a hash probe into primitive arrays, so they stay constant time
+ * however long the list gets.  Entries can't be removed one by one; the maps are rebuilt
+ * whenever the data behind them changes.
+ */
+final class LongIntMap {
+
+    private long[] mKeys;
+    private int[] mValues;
+    private boolean[] mUsed;
+    private int mSize;
+
+    LongIntMap() {
+        this(8);
+    }
+
+    LongIntMap(int expectedSize) {
+        // Keep the table at most half full so probe sequences stay short.
+        int capacity = 4;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mValues = new int[capacity];
+        mUsed = new boolean[capacity];
+        mSize = 0;
+    }
+
+    private int slot(long key) {
+        int mask = mKeys.length - 1;
+        int hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (mUsed[slot] && mKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    void put(long key, int value) {
+        int slot = slot(key);
+        if (!mUsed[slot]) {
+            if ((mSize + 1) * 2 > mKeys.length) {
+                grow();
+                slot = slot(key);
+            }
+            mUsed[slot] = true;
+            mKeys[slot] = key;
+            mSize++;
+        }
+        mValues[slot] = value;
+    }
+
+    /**
+     * Returns the value mapped to the key, or valueIfKeyNotFound if there is none.
+     */
+    int get(long key, int valueIfKeyNotFound) {
+        int slot = slot(key);
+        return mUsed[slot] ? mValues[slot] : valueIfKeyNotFound;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    void clear() {
+        Arrays.fill(mUsed, false);
+        mSize = 0;
+    }
+
+    private void grow() {
+        long[] keys = mKeys;
+        int[] values = mValues;
+        boolean[] used = mUsed;
+        allocate(keys.length * 2);
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                int slot = slot(keys[i]);
+                mUsed[slot] = true;
+                mKeys[slot] = keys[i];
+                mValues[slot] = values[i];
+                mSize++;
+            }
+        }
+    }
+}
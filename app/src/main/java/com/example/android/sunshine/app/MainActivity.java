@@ -33,9 +33,14 @@ import android.view.View;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.gcm.RegistrationIntentService;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+import com.example.android.sunshine.app.wear.WeatherDataService;
+import com.example.android.sunshine.app.widget.WidgetRenderState;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.GoogleApiAvailability;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 public class MainActivity extends AppCompatActivity implements ForecastFragment.Callback {
 
     private final String LOG_TAG = MainActivity.class.getSimpleName();
@@ -176,6 +181,15 @@ public class MainActivity extends AppCompatActivity implements ForecastFragment.
         }
     }
 
+    // Shows up in "adb shell dumpsys activity top" while the app is in front.
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        SunshineGlideModule.dump(writer);
+        WidgetRenderState.dump(this, writer);
+        WeatherDataService.dump(this, writer);
+    }
+
     /**
      * Check the device to make sure it has the Google Play Services APK. If
      * it doesn't, display a dialog that allows users to download the APK from
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+/**
+ * An immutable copy of the user settings that the formatting code reads all the time.
+ *
+ * Reading a setting through SharedPreferences means a map lookup under a lock, plus a resource
+ * lookup for its key and default, every single time.  Instead, one snapshot is built up front
+ * and replaced as a whole whenever a preference changes, so readers only ever do a volatile
+ * read and never see a half-updated mix of old and new values.
+ */
+public final class SettingsSnapshot {
+
+    public final String locationSetting;
+    public final boolean isMetric;
+    // Format string of the selected art pack, with one %s for the condition
+    public final String artPackUrlFormat;
+    public final boolean usingLocalGraphics;
+
+    private static volatile SettingsSnapshot sCurrent;
+
+    // SharedPreferences only keeps weak references to its listeners, so this one is held here
+    // for the life of the process.
+    private static SharedPreferences.OnSharedPreferenceChangeListener sListener;
+
+    private SettingsSnapshot(Context context, SharedPreferences prefs) {
+        locationSetting = prefs.getString(context.getString(R.string.pref_location_key),
+                context.getString(R.string.pref_location_default));
+
+        String metric = context.getString(R.string.pref_units_metric);
+        isMetric = prefs.getString(context.getString(R.string.pref_units_key), metric)
+                .equals(metric);
+
+        String sunshineArtPack = context.getString(R.string.pref_art_pack_sunshine);
+        artPackUrlFormat = prefs.getString(context.getString(R.string.pref_art_pack_key),
+                sunshineArtPack);
+        usingLocalGraphics = artPackUrlFormat.equals(sunshineArtPack);
+    }
+
+    /**
+     * Returns the current settings.  The first call loads them and starts listening for
+     * changes; after that this is a single volatile read.
+     */
+    public static SettingsSnapshot get(Context context) {
+        SettingsSnapshot current = sCurrent;
+        if (null == current) {
+            current = load(context.getApplicationContext());
+        }
+        return current;
+    }
+
+    private static synchronized SettingsSnapshot load(final Context appContext) {
+        if (null == sCurrent) {
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(appContext);
+            sListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+                    sCurrent = new SettingsSnapshot(appContext, prefs);
+                }
+            };
+            prefs.registerOnSharedPreferenceChangeListener(sListener);
+            sCurrent = new SettingsSnapshot(appContext, prefs);
+        }
+        return sCurrent;
+    }
+}
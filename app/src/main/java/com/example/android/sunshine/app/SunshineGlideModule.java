@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.v4.app.ActivityManagerCompat;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.Key;
+import com.bumptech.glide.load.engine.Resource;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.GlideModule;
+
+import java.io.PrintWriter;
+
+/**
+ * Configures Glide for the whole app; registered in the manifest.
+ *
+ * The app only ever shows a few dozen small pieces of weather art, so the memory cache and
+ * bitmap pool get a fraction of what Glide would size them to, and less again on low-RAM
+ * devices.  Downloads are kept in a disk cache of their own, and decoded as RGB_565 unless the
+ * image has transparency.  Both caches count their hits and misses; see {@link #dump}.
+ */
+public class SunshineGlideModule implements GlideModule {
+    private static final String LOG_TAG = SunshineGlideModule.class.getSimpleName();
+
+    private static final String DISK_CACHE_NAME = "weather_art";
+    private static final int DISK_CACHE_SIZE = 32 * 1024 * 1024;
+
+    // Share of Glide's own memory budgets that the app uses
+    private static final float MEMORY_SCALE = 0.5f;
+    private static final float LOW_RAM_MEMORY_SCALE = 0.25f;
+
+    private static CountingResourceCache sMemoryCache;
+    private static CountingBitmapPool sBitmapPool;
+
+    @Override
+    public void applyOptions(Context context, GlideBuilder builder) {
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        float scale = ActivityManagerCompat.isLowRamDevice(activityManager)
+                ? LOW_RAM_MEMORY_SCALE : MEMORY_SCALE;
+
+        MemorySizeCalculator calculator = new MemorySizeCalculator(context);
+        int memoryCacheSize = (int) (calculator.getMemoryCacheSize() * scale);
+        int bitmapPoolSize = (int) (calculator.getBitmapPoolSize() * scale);
+        Log.d(LOG_TAG, "Memory cache " + memoryCacheSize + " bytes, bitmap pool "
+                + bitmapPoolSize + " bytes");
+
+        sMemoryCache = new CountingResourceCache(memoryCacheSize);
+        sBitmapPool = new CountingBitmapPool(bitmapPoolSize);
+        builder.setMemoryCache(sMemoryCache)
+                .setBitmapPool(sBitmapPool)
+                .setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_NAME,
+                        DISK_CACHE_SIZE))
+                .setDecodeFormat(DecodeFormat.PREFER_RGB_565);
+    }
+
+    @Override
+    public void registerComponents(Context context, Glide glide) {
+    }
+
+    /**
+     * Prints the sizes and hit rates of Glide's memory caches.  Nothing is printed until Glide
+     * has been used.
+     */
+    public static void dump(PrintWriter writer) {
+        CountingResourceCache memoryCache = sMemoryCache;
+        CountingBitmapPool bitmapPool = sBitmapPool;
+        if (null == memoryCache || null == bitmapPool) {
+            return;
+        }
+        synchronized (memoryCache) {
+            writer.println("Glide memory cache: size=" + memoryCache.getCurrentSize()
+                    + " max=" + memoryCache.getMaxSize()
+                    + " hits=" + memoryCache.hits
+                    + " misses=" + memoryCache.misses
+                    + " evictions=" + memoryCache.evictions);
+        }
+        synchronized (bitmapPool) {
+            writer.println("Glide bitmap pool: max=" + bitmapPool.getMaxSize()
+                    + " hits=" + bitmapPool.hits
+                    + " misses=" + bitmapPool.misses);
+        }
+    }
+
+    private static class CountingResourceCache extends LruResourceCache {
+        long hits;
+        long misses;
+        long evictions;
+
+        CountingResourceCache(int size) {
+            super(size);
+        }
+
+        // Glide takes resources out of the cache while they are in use, so this is its lookup.
+        @Override
+        public synchronized Resource<?> remove(Key key) {
+            Resource<?> resource = super.remove(key);
+            if (null == resource) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return resource;
+        }
+
+        @Override
+        protected void onItemEvicted(Key key, Resource<?> item) {
+            evictions++;
+            super.onItemEvicted(key, item);
+        }
+    }
+
+    private static class CountingBitmapPool extends LruBitmapPool {
+        long hits;
+        long misses;
+
+        CountingBitmapPool(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        public synchronized Bitmap getDirty(int width, int height, Bitmap.Config config) {
+            Bitmap bitmap = super.getDirty(width, height, config);
+            if (null == bitmap) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return bitmap;
+        }
+    }
+}
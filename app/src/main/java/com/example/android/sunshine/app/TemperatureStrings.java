@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+
+import java.util.Locale;
+
+/**
+ * Preformatted temperature strings, so that showing a temperature is an array index rather
+ * than a resource lookup and a String.format.
+ *
+ * Temperatures are shown rounded to whole degrees, and realistic ones fall in a small range, so
+ * every whole degree from MIN to MAX is formatted up front for both unit systems.  The tables
+ * are rebuilt when the locale changes.  Anything outside of them is formatted the slow way, with
+ * exactly the same result.
+ */
+public final class TemperatureStrings {
+
+    private static final int MIN_CELSIUS = -90;
+    private static final int MAX_CELSIUS = 60;
+    private static final int MIN_FAHRENHEIT = -130;
+    private static final int MAX_FAHRENHEIT = 140;
+
+    private static final class Tables {
+        final Locale locale;
+        final String[] celsius;
+        final String[] fahrenheit;
+
+        Tables(Context context, Locale locale) {
+            this.locale = locale;
+            String format = context.getString(R.string.format_temperature);
+            celsius = build(format, MIN_CELSIUS, MAX_CELSIUS);
+            fahrenheit = build(format, MIN_FAHRENHEIT, MAX_FAHRENHEIT);
+        }
+
+        private static String[] build(String format, int min, int max) {
+            String[] strings = new String[max - min + 1];
+            for (int degrees = min; degrees <= max; degrees++) {
+                strings[degrees - min] = String.format(format, (double) degrees);
+            }
+            return strings;
+        }
+    }
+
+    private static volatile Tables sTables;
+
+    private TemperatureStrings() {
+    }
+
+    /**
+     * Formats a temperature for display.
+     *
+     * @param celsius the temperature, in degrees Celsius as stored in the database
+     * @param isMetric whether to show it in Celsius rather than Fahrenheit
+     */
+    public static String format(Context context, double celsius, boolean isMetric) {
+        double temperature = isMetric ? celsius : (celsius * 1.8) + 32;
+
+        Tables tables = sTables;
+        Locale locale = Locale.getDefault();
+        if (null == tables || tables.locale != locale) {
+            tables = new Tables(context, locale);
+            sTables = tables;
+        }
+
+        if (Double.isNaN(temperature)) {
+            return formatSlowly(context, temperature);
+        }
+
+        // Round half away from zero, like the "%1.0f" in the format does.
+        double magnitude = Math.abs(temperature);
+        long rounded = (long) Math.floor(magnitude);
+        if (magnitude - rounded >= 0.5) {
+            rounded++;
+        }
+        if (Math.copySign(1.0, temperature) < 0) {
+            // Small negative values come out as "-0", which only the formatter knows how to say.
+            if (rounded == 0) {
+                return formatSlowly(context, temperature);
+            }
+            rounded = -rounded;
+        }
+
+        String[] strings = isMetric ? tables.celsius : tables.fahrenheit;
+        long index = rounded - (isMetric ? MIN_CELSIUS : MIN_FAHRENHEIT);
+        if (index < 0 || index >= strings.length) {
+            return formatSlowly(context, temperature);
+        }
+        return strings[(int) index];
+    }
+
+    private static String formatSlowly(Context context, double temperature) {
+        return String.format(context.getString(R.string.format_temperature), temperature);
+    }
+}
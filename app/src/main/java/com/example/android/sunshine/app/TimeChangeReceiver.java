@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.AsyncTask;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+/**
+ * Drops the cached day labels when the time zone, the clock or the locale changes, since any
+ * of those can make "Today" or a day name wrong.  For the same reason it has the provider
+ * rebuild the today summaries that have gone out of date.
+ */
+public class TimeChangeReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        DateLabels.invalidate();
+
+        // The rebuild touches the database, so keep it off the main thread
+        final Context appContext = context.getApplicationContext();
+        final PendingResult result = goAsync();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    appContext.getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                            WeatherContract.METHOD_REFRESH_TODAY, null, null);
+                } finally {
+                    result.finish();
+                }
+            }
+        });
+    }
+}
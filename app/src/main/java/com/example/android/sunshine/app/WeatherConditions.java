@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import java.util.Arrays;
+
+/**
+ * Resolves OpenWeatherMap condition codes to the icon, art, description and remote images
+ * Sunshine shows for them.
+ *
+ * The codes span 200 to 962, so every answer is precomputed into arrays indexed by code and a
+ * lookup is a bounds check and one array access.  The ranges below are the ones documented at
+ * http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
+ */
+public final class WeatherConditions {
+
+    static final int MIN_ID = 200;
+    static final int MAX_ID = 962;
+
+    // The groups of conditions that share an icon and art
+    private static final int NONE = -1;
+    private static final int STORM = 0;
+    private static final int LIGHT_RAIN = 1;
+    private static final int RAIN = 2;
+    private static final int SNOW = 3;
+    private static final int FOG = 4;
+    private static final int SQUALL = 5;
+    private static final int CLEAR = 6;
+    private static final int LIGHT_CLOUDS = 7;
+    private static final int CLOUDS = 8;
+
+    // Indexed by group
+    private static final int[] GROUP_ICONS = {
+            R.drawable.ic_storm, R.drawable.ic_light_rain, R.drawable.ic_rain,
+            R.drawable.ic_snow, R.drawable.ic_fog, R.drawable.ic_storm,
+            R.drawable.ic_clear, R.drawable.ic_light_clouds, R.drawable.ic_cloudy
+    };
+    private static final int[] GROUP_ARTS = {
+            R.drawable.art_storm, R.drawable.art_light_rain, R.drawable.art_rain,
+            R.drawable.art_snow, R.drawable.art_fog, R.drawable.art_storm,
+            R.drawable.art_clear, R.drawable.art_light_clouds, R.drawable.art_clouds
+    };
+    // The name of the group's image in an art pack, see getArtUrlForWeatherCondition
+    private static final String[] GROUP_ART_KEYS = {
+            "storm", "light_rain", "rain", "snow", "fog", "storm", "clear", "light_clouds", "clouds"
+    };
+    private static final String[] GROUP_IMAGE_URLS = {
+            "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg"
+    };
+
+    // Indexed by code - MIN_ID
+    private static final int[] ICONS = new int[MAX_ID - MIN_ID + 1];
+    private static final int[] ARTS = new int[MAX_ID - MIN_ID + 1];
+    private static final String[] ART_KEYS = new String[MAX_ID - MIN_ID + 1];
+    private static final String[] IMAGE_URLS = new String[MAX_ID - MIN_ID + 1];
+    private static final int[] STRINGS = new int[MAX_ID - MIN_ID + 1];
+
+    static {
+        Arrays.fill(ICONS, -1);
+        Arrays.fill(ARTS, -1);
+        for (int weatherId = MIN_ID; weatherId <= MAX_ID; weatherId++) {
+            int group = groupOf(weatherId);
+            if (group != NONE) {
+                int i = weatherId - MIN_ID;
+                ICONS[i] = GROUP_ICONS[group];
+                ARTS[i] = GROUP_ARTS[group];
+                ART_KEYS[i] = GROUP_ART_KEYS[group];
+                IMAGE_URLS[i] = GROUP_IMAGE_URLS[group];
+            }
+        }
+
+        for (int weatherId = 200; weatherId <= 232; weatherId++) {
+            STRINGS[weatherId - MIN_ID] = R.string.condition_2xx;
+        }
+        for (int weatherId = 300; weatherId <= 321; weatherId++) {
+            STRINGS[weatherId - MIN_ID] = R.string.condition_3xx;
+        }
+        putString(500, R.string.condition_500);
+        putString(501, R.string.condition_501);
+        putString(502, R.string.condition_502);
+        putString(503, R.string.condition_503);
+        putString(504, R.string.condition_504);
+        putString(511, R.string.condition_511);
+        putString(520, R.string.condition_520);
+        putString(531, R.string.condition_531);
+        putString(600, R.string.condition_600);
+        putString(601, R.string.condition_601);
+        putString(602, R.string.condition_602);
+        putString(611, R.string.condition_611);
+        putString(612, R.string.condition_612);
+        putString(615, R.string.condition_615);
+        putString(616, R.string.condition_616);
+        putString(620, R.string.condition_620);
+        putString(621, R.string.condition_621);
+        putString(622, R.string.condition_622);
+        putString(701, R.string.condition_701);
+        putString(711, R.string.condition_711);
+        putString(721, R.string.condition_721);
+        putString(731, R.string.condition_731);
+        putString(741, R.string.condition_741);
+        putString(751, R.string.condition_751);
+        putString(761, R.string.condition_761);
+        putString(762, R.string.condition_762);
+        putString(771, R.string.condition_771);
+        putString(781, R.string.condition_781);
+        putString(800, R.string.condition_800);
+        putString(801, R.string.condition_801);
+        putString(802, R.string.condition_802);
+        putString(803, R.string.condition_803);
+        putString(804, R.string.condition_804);
+        putString(900, R.string.condition_900);
+        putString(901, R.string.condition_901);
+        putString(902, R.string.condition_902);
+        putString(903, R.string.condition_903);
+        putString(904, R.string.condition_904);
+        putString(905, R.string.condition_905);
+        putString(906, R.string.condition_906);
+        putString(951, R.string.condition_951);
+        putString(952, R.string.condition_952);
+        putString(953, R.string.condition_953);
+        putString(954, R.string.condition_954);
+        putString(955, R.string.condition_955);
+        putString(956, R.string.condition_956);
+        putString(957, R.string.condition_957);
+        putString(958, R.string.condition_958);
+        putString(959, R.string.condition_959);
+        putString(960, R.string.condition_960);
+        putString(961, R.string.condition_961);
+        putString(962, R.string.condition_962);
+    }
+
+    private WeatherConditions() {
+    }
+
+    // Only used to fill the tables.
+    private static int groupOf(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return STORM;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return LIGHT_RAIN;
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return RAIN;
+        } else if (weatherId == 511) {
+            return SNOW;
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return RAIN;
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return SNOW;
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return FOG;
+        } else if (weatherId == 781) {
+            return SQUALL;
+        } else if (weatherId == 800) {
+            return CLEAR;
+        } else if (weatherId == 801) {
+            return LIGHT_CLOUDS;
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return CLOUDS;
+        }
+        return NONE;
+    }
+
+    private static void putString(int weatherId, int stringId) {
+        STRINGS[weatherId - MIN_ID] = stringId;
+    }
+
+    private static boolean isKnown(int weatherId) {
+        return weatherId >= MIN_ID && weatherId <= MAX_ID;
+    }
+
+    /**
+     * @return the icon resource for the condition, or -1 if there is none.
+     */
+    public static int getIconResource(int weatherId) {
+        return isKnown(weatherId) ? ICONS[weatherId - MIN_ID] : -1;
+    }
+
+    /**
+     * @return the art resource for the condition, or -1 if there is none.
+     */
+    public static int getArtResource(int weatherId) {
+        return isKnown(weatherId) ? ARTS[weatherId - MIN_ID] : -1;
+    }
+
+    /**
+     * @return the name of the condition's image in an art pack, or null if there is none.
+     */
+    public static String getArtKey(int weatherId) {
+        return isKnown(weatherId) ? ART_KEYS[weatherId - MIN_ID] : null;
+    }
+
+    /**
+     * @return the description string resource for the condition, or 0 if there is none.
+     */
+    public static int getStringResource(int weatherId) {
+        return isKnown(weatherId) ? STRINGS[weatherId - MIN_ID] : 0;
+    }
+
+    /**
+     * @return the URL of a photo of the condition, or null if there is none.
+     */
+    public static String getImageUrl(int weatherId) {
+        return isKnown(weatherId) ? IMAGE_URLS[weatherId - MIN_ID] : null;
+    }
+}
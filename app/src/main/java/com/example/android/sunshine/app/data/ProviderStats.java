@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.database.CrossProcessCursorWrapper;
+import android.database.Cursor;
+import android.database.CursorWindow;
+import android.os.Bundle;
+import android.util.SparseArray;
+
+import java.io.PrintWriter;
+
+/**
+ * Usage counters for the {@link WeatherProvider}, kept per UriMatcher route and operation:
+ * how often it is called, how long the calls take, how many rows they touch and how many
+ * change notifications they fan out.
+ *
+ * Recording is a handful of array increments under a lock, so it stays on in production.
+ */
+class ProviderStats {
+
+    static final int OP_QUERY = 0;
+    static final int OP_INSERT = 1;
+    static final int OP_BULK_INSERT = 2;
+    static final int OP_UPDATE = 3;
+    static final int OP_DELETE = 4;
+    private static final String[] OP_NAMES = {"query", "insert", "bulkInsert", "update", "delete"};
+
+    // Upper bounds, in milliseconds, of the latency histogram buckets.  Calls slower than the
+    // last bound go into one extra, open ended bucket.
+    static final int[] LATENCY_BUCKETS_MS = {1, 2, 4, 8, 16, 32, 64, 128, 256};
+
+    private static class RouteStats {
+        final String name;
+        final long[] calls = new long[OP_NAMES.length];
+        final long[] rows = new long[OP_NAMES.length];
+        final long[] totalNanos = new long[OP_NAMES.length];
+        final long[][] latency = new long[OP_NAMES.length][LATENCY_BUCKETS_MS.length + 1];
+        long notifications;
+
+        RouteStats(String name) {
+            this.name = name;
+        }
+    }
+
+    private final SparseArray<RouteStats> mRoutes = new SparseArray<>();
+
+    void addRoute(int route, String name) {
+        synchronized (mRoutes) {
+            mRoutes.put(route, new RouteStats(name));
+        }
+    }
+
+    /**
+     * Records one completed call.
+     *
+     * @param route the UriMatcher code the call was routed to
+     * @param op one of the OP_ constants
+     * @param startNanos {@link System#nanoTime()} when the call started
+     * @param rows rows returned or affected by the call
+     */
+    void record(int route, int op, long startNanos, int rows) {
+        recordElapsed(route, op, System.nanoTime() - startNanos, rows);
+    }
+
+    private void recordElapsed(int route, int op, long elapsedNanos, int rows) {
+        long elapsedMillis = elapsedNanos / 1000000;
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS_MS.length && elapsedMillis >= LATENCY_BUCKETS_MS[bucket]) {
+            bucket++;
+        }
+        synchronized (mRoutes) {
+            RouteStats stats = mRoutes.get(route);
+            if (null == stats) return;
+            stats.calls[op]++;
+            stats.rows[op] += rows;
+            stats.totalNanos[op] += elapsedNanos;
+            stats.latency[op][bucket]++;
+        }
+    }
+
+    /**
+     * Records a query that returned the given cursor.  SQLite only runs the query when the
+     * cursor is first read, so the call is recorded then, with the time of that first read
+     * added to its latency and the rows it found.  Callers that never read the cursor aren't
+     * made to run the query; their call is recorded with no rows when the cursor is closed.
+     */
+    Cursor recordQuery(int route, long startNanos, Cursor cursor) {
+        return new RowCountingCursor(cursor, route, System.nanoTime() - startNanos);
+    }
+
+    private class RowCountingCursor extends CrossProcessCursorWrapper {
+        private final int mRoute;
+        // Time spent in query() before the cursor was handed out
+        private final long mPrepareNanos;
+        private boolean mRecorded;
+
+        RowCountingCursor(Cursor cursor, int route, long prepareNanos) {
+            super(cursor);
+            mRoute = route;
+            mPrepareNanos = prepareNanos;
+        }
+
+        // Called right after a read, which filled the window if it was the first one, so
+        // getCount() is free by then
+        private void onRead(long readStartNanos) {
+            if (!mRecorded) {
+                mRecorded = true;
+                recordElapsed(mRoute, OP_QUERY,
+                        mPrepareNanos + System.nanoTime() - readStartNanos, getCount());
+            }
+        }
+
+        @Override
+        public int getCount() {
+            if (mRecorded) {
+                return super.getCount();
+            }
+            long start = System.nanoTime();
+            int count = super.getCount();
+            onRead(start);
+            return count;
+        }
+
+        @Override
+        public boolean moveToPosition(int position) {
+            long start = System.nanoTime();
+            boolean moved = super.moveToPosition(position);
+            onRead(start);
+            return moved;
+        }
+
+        @Override
+        public boolean move(int offset) {
+            long start = System.nanoTime();
+            boolean moved = super.move(offset);
+            onRead(start);
+            return moved;
+        }
+
+        @Override
+        public boolean moveToFirst() {
+            long start = System.nanoTime();
+            boolean moved = super.moveToFirst();
+            onRead(start);
+            return moved;
+        }
+
+        @Override
+        public boolean moveToLast() {
+            long start = System.nanoTime();
+            boolean moved = super.moveToLast();
+            onRead(start);
+            return moved;
+        }
+
+        @Override
+        public boolean moveToNext() {
+            long start = System.nanoTime();
+            boolean moved = super.moveToNext();
+            onRead(start);
+            return moved;
+        }
+
+        @Override
+        public boolean moveToPrevious() {
+            long start = System.nanoTime();
+            boolean moved = super.moveToPrevious();
+            onRead(start);
+            return moved;
+        }
+
+        // How the rows are read when the cursor is handed to another process
+        @Override
+        public void fillWindow(int position, CursorWindow window) {
+            long start = System.nanoTime();
+            super.fillWindow(position, window);
+            onRead(start);
+        }
+
+        @Override
+        public void close() {
+            if (!mRecorded) {
+                mRecorded = true;
+                recordElapsed(mRoute, OP_QUERY, mPrepareNanos, 0);
+            }
+            super.close();
+        }
+    }
+
+    void recordNotification(int route) {
+        synchronized (mRoutes) {
+            RouteStats stats = mRoutes.get(route);
+            if (null != stats) stats.notifications++;
+        }
+    }
+
+    void reset() {
+        synchronized (mRoutes) {
+            for (int i = 0; i < mRoutes.size(); i++) {
+                mRoutes.setValueAt(i, new RouteStats(mRoutes.valueAt(i).name));
+            }
+        }
+    }
+
+    void dump(PrintWriter writer) {
+        synchronized (mRoutes) {
+            writer.println("WeatherProvider stats (latency buckets in ms: <"
+                    + joinBuckets() + ", more):");
+            for (int i = 0; i < mRoutes.size(); i++) {
+                RouteStats stats = mRoutes.valueAt(i);
+                writer.println("  " + stats.name + ": notifications=" + stats.notifications);
+                for (int op = 0; op < OP_NAMES.length; op++) {
+                    if (stats.calls[op] == 0) continue;
+                    writer.print("    " + OP_NAMES[op]
+                            + ": calls=" + stats.calls[op]
+                            + " rows=" + stats.rows[op]
+                            + " avgMs=" + (stats.totalNanos[op] / stats.calls[op] / 1000000f)
+                            + " latency=[");
+                    for (int b = 0; b < stats.latency[op].length; b++) {
+                        if (b > 0) writer.print(", ");
+                        writer.print(stats.latency[op][b]);
+                    }
+                    writer.println("]");
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs the counters into a Bundle with one entry per route, keyed by route name.
+     * See {@link WeatherContract#METHOD_GET_PROVIDER_STATS} for the layout of each entry.
+     */
+    Bundle toBundle() {
+        Bundle result = new Bundle();
+        synchronized (mRoutes) {
+            for (int i = 0; i < mRoutes.size(); i++) {
+                RouteStats stats = mRoutes.valueAt(i);
+                Bundle route = new Bundle();
+                route.putLong(WeatherContract.STATS_NOTIFICATIONS, stats.notifications);
+                for (int op = 0; op < OP_NAMES.length; op++) {
+                    Bundle operation = new Bundle();
+                    operation.putLong(WeatherContract.STATS_CALLS, stats.calls[op]);
+                    operation.putLong(WeatherContract.STATS_ROWS, stats.rows[op]);
+                    operation.putLong(WeatherContract.STATS_TOTAL_NANOS, stats.totalNanos[op]);
+                    operation.putLongArray(WeatherContract.STATS_LATENCY_HISTOGRAM,
+                            stats.latency[op].clone());
+                    route.putBundle(OP_NAMES[op], operation);
+                }
+                result.putBundle(stats.name, route);
+            }
+        }
+        result.putIntArray(WeatherContract.STATS_LATENCY_BUCKETS_MS, LATENCY_BUCKETS_MS.clone());
+        return result;
+    }
+
+    private static String joinBuckets() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+            if (i > 0) builder.append(", <");
+            builder.append(LATENCY_BUCKETS_MS[i]);
+        }
+        return builder.toString();
+    }
+}
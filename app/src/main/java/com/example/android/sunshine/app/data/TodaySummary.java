@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+/**
+ * The today summary of a location, as read by {@link WeatherDao#readToday}: the raw values of
+ * the day plus its temperatures already formatted for both unit systems.
+ */
+public class TodaySummary extends WeatherRow {
+    public String highMetric;
+    public String lowMetric;
+    public String highImperial;
+    public String lowImperial;
+    // When the provider last rebuilt the summary, in milliseconds since the epoch.
+    public long updated;
+
+    public String getFormattedHigh(boolean isMetric) {
+        return isMetric ? highMetric : highImperial;
+    }
+
+    public String getFormattedLow(boolean isMetric) {
+        return isMetric ? lowMetric : lowImperial;
+    }
+}
@@ -43,6 +43,67 @@ public class WeatherContract {
     // At least, let's hope not.  Don't be that dev, reader.  Don't be that dev.
     public static final String PATH_WEATHER = "weather";
     public static final String PATH_LOCATION = "location";
+    public static final String PATH_TODAY = "today";
+
+    // Methods understood by ContentResolver.call() on the provider.
+    //
+    // METHOD_GET_PROVIDER_STATS returns a Bundle with one Bundle per route, keyed by the route's
+    // path pattern ("weather", "weather/*", "weather/*/#", "location", "today/*"), plus
+    // "call:read_forecast" for METHOD_READ_FORECAST calls, which are counted as queries.  Each
+    // route Bundle holds STATS_NOTIFICATIONS plus one Bundle per operation ("query", "insert",
+    // "bulkInsert", "update", "delete") with STATS_CALLS, STATS_ROWS, STATS_TOTAL_NANOS and
+    // STATS_LATENCY_HISTOGRAM.  The histogram bucket bounds are in STATS_LATENCY_BUCKETS_MS.
+    // A query is only recorded once the caller first reads the returned cursor, as that is when
+    // SQLite runs it; its latency includes that first read.
+    public static final String METHOD_GET_PROVIDER_STATS = "get_provider_stats";
+    public static final String METHOD_RESET_PROVIDER_STATS = "reset_provider_stats";
+
+    public static final String STATS_CALLS = "calls";
+    public static final String STATS_ROWS = "rows";
+    public static final String STATS_TOTAL_NANOS = "total_nanos";
+    public static final String STATS_LATENCY_HISTOGRAM = "latency_histogram";
+    public static final String STATS_LATENCY_BUCKETS_MS = "latency_buckets_ms";
+    public static final String STATS_NOTIFICATIONS = "notifications";
+
+    // METHOD_READ_FORECAST answers "the next EXTRA_MAX_DAYS days for location <arg> from
+    // EXTRA_START_DATE" in a single round trip, without a cursor.  Day 0 of the answer doubles
+    // as the today summary.  The reply packs one primitive array per column under the FORECAST_
+    // keys; use WeatherDao.readForecast() rather than taking the Bundle apart by hand.
+    public static final String METHOD_READ_FORECAST = "read_forecast";
+    public static final String EXTRA_START_DATE = "start_date";
+    public static final String EXTRA_MAX_DAYS = "max_days";
+
+    public static final String FORECAST_IDS = "ids";
+    public static final String FORECAST_DATES = "dates";
+    public static final String FORECAST_WEATHER_IDS = "weather_ids";
+    public static final String FORECAST_DESCRIPTIONS = "descriptions";
+    public static final String FORECAST_HIGHS = "highs";
+    public static final String FORECAST_LOWS = "lows";
+    public static final String FORECAST_HUMIDITY = "humidity";
+    public static final String FORECAST_PRESSURE = "pressure";
+    public static final String FORECAST_WIND_SPEED = "wind_speed";
+    public static final String FORECAST_DEGREES = "degrees";
+    public static final String FORECAST_LOCATION_SETTING = "location_setting";
+    public static final String FORECAST_COORD_LAT = "coord_lat";
+    public static final String FORECAST_COORD_LONG = "coord_long";
+
+    // METHOD_REFRESH_TODAY rebuilds the today summaries if the day has ended or the locale has
+    // changed since they were built, which no write to the weather tells the provider about.
+    public static final String METHOD_REFRESH_TODAY = "refresh_today";
+
+    // METHOD_READ_BATCH answers several reads in a single round trip, all from the same snapshot
+    // of the database.  EXTRA_REQUESTS holds one Bundle per read, with REQUEST_TYPE,
+    // REQUEST_LOCATION and, for a forecast, EXTRA_START_DATE and EXTRA_MAX_DAYS.  The reply
+    // holds one Bundle per read under EXTRA_RESULTS, in the same order: the today summary keyed
+    // by its column names (empty if there is none), or a forecast as METHOD_READ_FORECAST packs
+    // it.  Use WeatherDao.ReadBatch rather than building the Bundles by hand.
+    public static final String METHOD_READ_BATCH = "read_batch";
+    public static final String EXTRA_REQUESTS = "requests";
+    public static final String EXTRA_RESULTS = "results";
+    public static final String REQUEST_TYPE = "type";
+    public static final String REQUEST_LOCATION = "location";
+    public static final String REQUEST_TODAY = "today";
+    public static final String REQUEST_FORECAST = "forecast";
 
     // To make it easy to query for the exact date, we normalize all dates that go into
     // the database to the start of the the Julian day at UTC.
@@ -86,6 +147,70 @@ public class WeatherContract {
         }
     }
 
+    /* Inner class that defines the table contents of the condition dictionary table */
+    public static final class ConditionEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "condition";
+
+        // The _ID of a condition is the weather id as returned by the API, so weather rows
+        // reference it directly through WeatherEntry.COLUMN_WEATHER_ID.
+
+        // Short description of the condition, as provided by API, e.g "clear".
+        public static final String COLUMN_SHORT_DESC = "short_desc";
+    }
+
+    /*
+        Inner class that defines the table contents of the today summary table.  The provider
+        keeps one row per location with the first forecast day that isn't over yet, already
+        decoded and with the temperatures formatted for both unit systems, and rewrites it in
+        the same transaction as every write to the weather table.  It is read-only to callers.
+     */
+    public static final class TodayEntry {
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_TODAY).build();
+
+        public static final String CONTENT_ITEM_TYPE =
+                ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_TODAY;
+
+        public static final String TABLE_NAME = "today";
+
+        // The location setting this summary is for; also the primary key.
+        public static final String COLUMN_LOCATION_SETTING = LocationEntry.COLUMN_LOCATION_SETTING;
+
+        // Raw values of the day, named and decoded as in the weather table.
+        public static final String COLUMN_DATE = WeatherEntry.COLUMN_DATE;
+        public static final String COLUMN_WEATHER_ID = WeatherEntry.COLUMN_WEATHER_ID;
+        public static final String COLUMN_SHORT_DESC = WeatherEntry.COLUMN_SHORT_DESC;
+        public static final String COLUMN_MIN_TEMP = WeatherEntry.COLUMN_MIN_TEMP;
+        public static final String COLUMN_MAX_TEMP = WeatherEntry.COLUMN_MAX_TEMP;
+        public static final String COLUMN_HUMIDITY = WeatherEntry.COLUMN_HUMIDITY;
+        public static final String COLUMN_PRESSURE = WeatherEntry.COLUMN_PRESSURE;
+        public static final String COLUMN_WIND_SPEED = WeatherEntry.COLUMN_WIND_SPEED;
+        public static final String COLUMN_DEGREES = WeatherEntry.COLUMN_DEGREES;
+
+        // The min and max temperatures, formatted for display in each unit system.
+        public static final String COLUMN_HIGH_METRIC = "high_metric";
+        public static final String COLUMN_LOW_METRIC = "low_metric";
+        public static final String COLUMN_HIGH_IMPERIAL = "high_imperial";
+        public static final String COLUMN_LOW_IMPERIAL = "low_imperial";
+
+        // The default locale the strings above were formatted in.  A summary formatted in
+        // another locale is rebuilt by METHOD_REFRESH_TODAY.
+        public static final String COLUMN_LOCALE = "locale";
+
+        // When the summary was last rebuilt, in milliseconds since the epoch.
+        public static final String COLUMN_UPDATED = "updated";
+
+        public static Uri buildTodayUri(String locationSetting) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting).build();
+        }
+
+        public static String getLocationSettingFromUri(Uri uri) {
+            return uri.getPathSegments().get(1);
+        }
+    }
+
     /* Inner class that defines the table contents of the weather table */
     public static final class WeatherEntry implements BaseColumns {
 
@@ -106,26 +231,35 @@ public class WeatherContract {
         // Weather id as returned by API, to identify the icon to be used
         public static final String COLUMN_WEATHER_ID = "weather_id";
 
-        // Short description and long description of the weather, as provided by API.
-        // e.g "clear" vs "sky is clear".
-        public static final String COLUMN_SHORT_DESC = "short_desc";
+        // Short description of the weather, as provided by API, e.g "clear".  The description
+        // is fully determined by the weather id, so it isn't stored in this table: it lives in
+        // the condition table and the provider joins it back in on query.
+        public static final String COLUMN_SHORT_DESC = ConditionEntry.COLUMN_SHORT_DESC;
 
-        // Min and max temperatures for the day (stored as floats)
+        // Min and max temperatures for the day.  Stored as fixed-point integers in tenths of a
+        // degree Celsius, and decoded back to floats by the provider.
         public static final String COLUMN_MIN_TEMP = "min";
         public static final String COLUMN_MAX_TEMP = "max";
 
-        // Humidity is stored as a float representing percentage
+        // Humidity is stored as an integer representing percentage
         public static final String COLUMN_HUMIDITY = "humidity";
 
-        // Humidity is stored as a float representing percentage
+        // Pressure is stored as a fixed-point integer in tenths of a hPa
         public static final String COLUMN_PRESSURE = "pressure";
 
-        // Windspeed is stored as a float representing windspeed  mph
+        // Windspeed is stored as a fixed-point integer in tenths of the unit returned by the API
         public static final String COLUMN_WIND_SPEED = "wind";
 
-        // Degrees are meteorological degrees (e.g, 0 is north, 180 is south).  Stored as floats.
+        // Degrees are meteorological degrees (e.g, 0 is north, 180 is south).  Stored as
+        // integers, since we only ever need the compass direction.
         public static final String COLUMN_DEGREES = "degrees";
 
+        // Scale factors of the fixed-point columns above.  Callers always see decoded values
+        // through the provider; these only matter to code that touches the database directly.
+        public static final int TEMPERATURE_SCALE = 10;
+        public static final int PRESSURE_SCALE = 10;
+        public static final int WIND_SCALE = 10;
+
         public static Uri buildWeatherUri(long id) {
             return ContentUris.withAppendedId(CONTENT_URI, id);
         }
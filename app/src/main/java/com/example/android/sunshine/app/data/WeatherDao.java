@@ -0,0 +1,432 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Bundle;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.TodayEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.util.ArrayList;
+
+/**
+ * Reads weather rows out of the {@link WeatherProvider} into {@link WeatherRow}s.
+ *
+ * Every reader of the joined weather data goes through the one projection below, so the column
+ * indices live in exactly one place and callers only ever see typed fields.
+ */
+public final class WeatherDao {
+
+    /**
+     * Projection for queries against the weather URIs that join in the location.
+     */
+    public static final String[] WEATHER_COLUMNS = {
+            // In this case the id needs to be fully qualified with a table name, since
+            // the content provider joins the location & weather tables in the background
+            // (both have an _id column)
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry._ID,
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES,
+            LocationEntry.COLUMN_LOCATION_SETTING,
+            LocationEntry.COLUMN_COORD_LAT,
+            LocationEntry.COLUMN_COORD_LONG
+    };
+
+    // These indices are tied to WEATHER_COLUMNS.  If WEATHER_COLUMNS changes, these
+    // must change.
+    private static final int INDEX_ID = 0;
+    private static final int INDEX_DATE = 1;
+    private static final int INDEX_WEATHER_ID = 2;
+    private static final int INDEX_SHORT_DESC = 3;
+    private static final int INDEX_MAX_TEMP = 4;
+    private static final int INDEX_MIN_TEMP = 5;
+    private static final int INDEX_HUMIDITY = 6;
+    private static final int INDEX_PRESSURE = 7;
+    private static final int INDEX_WIND_SPEED = 8;
+    private static final int INDEX_DEGREES = 9;
+    private static final int INDEX_LOCATION_SETTING = 10;
+    private static final int INDEX_COORD_LAT = 11;
+    private static final int INDEX_COORD_LONG = 12;
+
+    /**
+     * Projection for the today summary URI.
+     */
+    public static final String[] TODAY_COLUMNS = {
+            TodayEntry.COLUMN_LOCATION_SETTING,
+            TodayEntry.COLUMN_DATE,
+            TodayEntry.COLUMN_WEATHER_ID,
+            TodayEntry.COLUMN_SHORT_DESC,
+            TodayEntry.COLUMN_MAX_TEMP,
+            TodayEntry.COLUMN_MIN_TEMP,
+            TodayEntry.COLUMN_HUMIDITY,
+            TodayEntry.COLUMN_PRESSURE,
+            TodayEntry.COLUMN_WIND_SPEED,
+            TodayEntry.COLUMN_DEGREES,
+            TodayEntry.COLUMN_HIGH_METRIC,
+            TodayEntry.COLUMN_LOW_METRIC,
+            TodayEntry.COLUMN_HIGH_IMPERIAL,
+            TodayEntry.COLUMN_LOW_IMPERIAL,
+            TodayEntry.COLUMN_UPDATED
+    };
+
+    // These indices are tied to TODAY_COLUMNS.
+    private static final int INDEX_TODAY_LOCATION_SETTING = 0;
+    private static final int INDEX_TODAY_DATE = 1;
+    private static final int INDEX_TODAY_WEATHER_ID = 2;
+    private static final int INDEX_TODAY_SHORT_DESC = 3;
+    private static final int INDEX_TODAY_MAX_TEMP = 4;
+    private static final int INDEX_TODAY_MIN_TEMP = 5;
+    private static final int INDEX_TODAY_HUMIDITY = 6;
+    private static final int INDEX_TODAY_PRESSURE = 7;
+    private static final int INDEX_TODAY_WIND_SPEED = 8;
+    private static final int INDEX_TODAY_DEGREES = 9;
+    private static final int INDEX_TODAY_HIGH_METRIC = 10;
+    private static final int INDEX_TODAY_LOW_METRIC = 11;
+    private static final int INDEX_TODAY_HIGH_IMPERIAL = 12;
+    private static final int INDEX_TODAY_LOW_IMPERIAL = 13;
+    private static final int INDEX_TODAY_UPDATED = 14;
+
+    private static final String[] LOCATION_ID_COLUMNS = {LocationEntry._ID};
+    private static final int INDEX_LOCATION_ID = 0;
+
+    // Sort order:  Ascending, by date.
+    public static final String SORT_BY_DATE = WeatherEntry.COLUMN_DATE + " ASC";
+
+    private WeatherDao() {
+    }
+
+    /**
+     * Queries the forecast for a location from the given date onwards, sorted by date.
+     * The cursor is in the {@link #WEATHER_COLUMNS} projection.
+     */
+    public static Cursor queryForecast(ContentResolver resolver, String locationSetting,
+                                       long startDate) {
+        Uri weatherForLocationUri = WeatherEntry.buildWeatherLocationWithStartDate(
+                locationSetting, startDate);
+        return resolver.query(weatherForLocationUri, WEATHER_COLUMNS, null, null, SORT_BY_DATE);
+    }
+
+    /**
+     * Fills the row with the values at the current position of a cursor that was queried with
+     * the {@link #WEATHER_COLUMNS} projection.
+     *
+     * @return the row, for convenience
+     */
+    public static WeatherRow readRow(Cursor cursor, WeatherRow row) {
+        row.id = cursor.getLong(INDEX_ID);
+        row.date = cursor.getLong(INDEX_DATE);
+        row.weatherId = cursor.getInt(INDEX_WEATHER_ID);
+        row.description = cursor.getString(INDEX_SHORT_DESC);
+        row.high = cursor.getDouble(INDEX_MAX_TEMP);
+        row.low = cursor.getDouble(INDEX_MIN_TEMP);
+        row.humidity = cursor.getFloat(INDEX_HUMIDITY);
+        row.pressure = cursor.getFloat(INDEX_PRESSURE);
+        row.windSpeed = cursor.getFloat(INDEX_WIND_SPEED);
+        row.windDirection = cursor.getFloat(INDEX_DEGREES);
+        row.locationSetting = cursor.getString(INDEX_LOCATION_SETTING);
+        row.coordLat = cursor.getDouble(INDEX_COORD_LAT);
+        row.coordLong = cursor.getDouble(INDEX_COORD_LONG);
+        return row;
+    }
+
+    /**
+     * Reads just the date at the current position of a {@link #WEATHER_COLUMNS} cursor.
+     */
+    public static long readDate(Cursor cursor) {
+        return cursor.getLong(INDEX_DATE);
+    }
+
+    /**
+     * Reads the today summary of a location: a single primary key lookup, with the
+     * temperatures already formatted.
+     *
+     * @return the summary, or null if there is no forecast for the location
+     */
+    public static TodaySummary readToday(ContentResolver resolver, String locationSetting) {
+        Cursor cursor = resolver.query(TodayEntry.buildTodayUri(locationSetting), TODAY_COLUMNS,
+                null, null, null);
+        if (null == cursor) {
+            return null;
+        }
+        try {
+            return readToday(cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static TodaySummary readToday(Cursor cursor) {
+        if (!cursor.moveToFirst()) {
+            return null;
+        }
+        TodaySummary today = new TodaySummary();
+        today.locationSetting = cursor.getString(INDEX_TODAY_LOCATION_SETTING);
+        today.date = cursor.getLong(INDEX_TODAY_DATE);
+        today.weatherId = cursor.getInt(INDEX_TODAY_WEATHER_ID);
+        today.description = cursor.getString(INDEX_TODAY_SHORT_DESC);
+        today.high = cursor.getDouble(INDEX_TODAY_MAX_TEMP);
+        today.low = cursor.getDouble(INDEX_TODAY_MIN_TEMP);
+        today.humidity = cursor.getFloat(INDEX_TODAY_HUMIDITY);
+        today.pressure = cursor.getFloat(INDEX_TODAY_PRESSURE);
+        today.windSpeed = cursor.getFloat(INDEX_TODAY_WIND_SPEED);
+        today.windDirection = cursor.getFloat(INDEX_TODAY_DEGREES);
+        today.highMetric = cursor.getString(INDEX_TODAY_HIGH_METRIC);
+        today.lowMetric = cursor.getString(INDEX_TODAY_LOW_METRIC);
+        today.highImperial = cursor.getString(INDEX_TODAY_HIGH_IMPERIAL);
+        today.lowImperial = cursor.getString(INDEX_TODAY_LOW_IMPERIAL);
+        today.updated = cursor.getLong(INDEX_TODAY_UPDATED);
+        return today;
+    }
+
+    /**
+     * Packs the first row of a {@link #TODAY_COLUMNS} cursor into a Bundle keyed by column name,
+     * for {@link WeatherContract#METHOD_READ_BATCH}.  The Bundle is empty if there is no row.
+     */
+    static Bundle packToday(Cursor cursor) {
+        Bundle today = new Bundle();
+        if (cursor.moveToFirst()) {
+            for (int i = 0; i < TODAY_COLUMNS.length; i++) {
+                switch (cursor.getType(i)) {
+                    case Cursor.FIELD_TYPE_INTEGER:
+                        today.putLong(TODAY_COLUMNS[i], cursor.getLong(i));
+                        break;
+                    case Cursor.FIELD_TYPE_FLOAT:
+                        today.putDouble(TODAY_COLUMNS[i], cursor.getDouble(i));
+                        break;
+                    case Cursor.FIELD_TYPE_STRING:
+                        today.putString(TODAY_COLUMNS[i], cursor.getString(i));
+                        break;
+                }
+            }
+        }
+        return today;
+    }
+
+    private static TodaySummary unpackToday(Bundle bundle) {
+        if (bundle.isEmpty()) {
+            return null;
+        }
+        // Read back through a cursor, so there is only one place that knows the columns
+        Object[] values = new Object[TODAY_COLUMNS.length];
+        for (int i = 0; i < TODAY_COLUMNS.length; i++) {
+            values[i] = bundle.get(TODAY_COLUMNS[i]);
+        }
+        MatrixCursor cursor = new MatrixCursor(TODAY_COLUMNS, 1);
+        cursor.addRow(values);
+        return readToday(cursor);
+    }
+
+    /**
+     * Several reads answered together by a single {@link WeatherContract#METHOD_READ_BATCH}
+     * call, e.g. the today summary plus the coming days, from one snapshot of the data.
+     * Add the reads, call {@link #execute}, then fetch each answer by the index its add
+     * method returned.
+     */
+    public static final class ReadBatch {
+        private final ArrayList<Bundle> mRequests = new ArrayList<>();
+        private ArrayList<Bundle> mResults;
+
+        public int addToday(String locationSetting) {
+            Bundle request = new Bundle();
+            request.putString(WeatherContract.REQUEST_TYPE, WeatherContract.REQUEST_TODAY);
+            request.putString(WeatherContract.REQUEST_LOCATION, locationSetting);
+            mRequests.add(request);
+            return mRequests.size() - 1;
+        }
+
+        /**
+         * @param maxDays the most rows to return, or 0 for all of them
+         */
+        public int addForecast(String locationSetting, long startDate, int maxDays) {
+            Bundle request = new Bundle();
+            request.putString(WeatherContract.REQUEST_TYPE, WeatherContract.REQUEST_FORECAST);
+            request.putString(WeatherContract.REQUEST_LOCATION, locationSetting);
+            request.putLong(WeatherContract.EXTRA_START_DATE, startDate);
+            request.putInt(WeatherContract.EXTRA_MAX_DAYS, maxDays);
+            mRequests.add(request);
+            return mRequests.size() - 1;
+        }
+
+        /**
+         * @return false if the provider could not be reached; every answer is empty then
+         */
+        public boolean execute(ContentResolver resolver) {
+            Bundle extras = new Bundle();
+            extras.putParcelableArrayList(WeatherContract.EXTRA_REQUESTS, mRequests);
+            Bundle reply = resolver.call(WeatherContract.BASE_CONTENT_URI,
+                    WeatherContract.METHOD_READ_BATCH, null, extras);
+            mResults = null == reply
+                    ? null : reply.<Bundle>getParcelableArrayList(WeatherContract.EXTRA_RESULTS);
+            return null != mResults;
+        }
+
+        /**
+         * @return the summary, or null if there is no forecast for the location
+         */
+        public TodaySummary getToday(int index) {
+            return null == mResults ? null : unpackToday(mResults.get(index));
+        }
+
+        /**
+         * @return the rows sorted by date; empty if there is no forecast for the location
+         */
+        public WeatherRow[] getForecast(int index) {
+            return null == mResults ? new WeatherRow[0] : unpackForecast(mResults.get(index));
+        }
+    }
+
+    /**
+     * Reads up to maxDays of forecast for a location from the given date onwards with a single
+     * {@link WeatherContract#METHOD_READ_FORECAST} call, so cross-process readers such as the
+     * widgets don't pay for a cursor and its window.
+     *
+     * @param maxDays the most rows to return, or 0 for all of them
+     * @return the rows sorted by date; empty if there is no forecast for the location
+     */
+    public static WeatherRow[] readForecast(ContentResolver resolver, String locationSetting,
+                                            long startDate, int maxDays) {
+        Bundle extras = new Bundle();
+        extras.putLong(WeatherContract.EXTRA_START_DATE, startDate);
+        extras.putInt(WeatherContract.EXTRA_MAX_DAYS, maxDays);
+        Bundle forecast = resolver.call(WeatherContract.BASE_CONTENT_URI,
+                WeatherContract.METHOD_READ_FORECAST, locationSetting, extras);
+        return null == forecast ? new WeatherRow[0] : unpackForecast(forecast);
+    }
+
+    /**
+     * Packs every row of a {@link #WEATHER_COLUMNS} cursor into one primitive array per column.
+     * The location columns are the same for every row, so they are stored once.
+     */
+    static Bundle packForecast(Cursor cursor) {
+        int count = cursor.getCount();
+        long[] ids = new long[count];
+        long[] dates = new long[count];
+        int[] weatherIds = new int[count];
+        String[] descriptions = new String[count];
+        double[] highs = new double[count];
+        double[] lows = new double[count];
+        float[] humidity = new float[count];
+        float[] pressure = new float[count];
+        float[] windSpeed = new float[count];
+        float[] degrees = new float[count];
+
+        Bundle forecast = new Bundle();
+        for (int i = 0; cursor.moveToPosition(i); i++) {
+            ids[i] = cursor.getLong(INDEX_ID);
+            dates[i] = cursor.getLong(INDEX_DATE);
+            weatherIds[i] = cursor.getInt(INDEX_WEATHER_ID);
+            descriptions[i] = cursor.getString(INDEX_SHORT_DESC);
+            highs[i] = cursor.getDouble(INDEX_MAX_TEMP);
+            lows[i] = cursor.getDouble(INDEX_MIN_TEMP);
+            humidity[i] = cursor.getFloat(INDEX_HUMIDITY);
+            pressure[i] = cursor.getFloat(INDEX_PRESSURE);
+            windSpeed[i] = cursor.getFloat(INDEX_WIND_SPEED);
+            degrees[i] = cursor.getFloat(INDEX_DEGREES);
+            if (i == 0) {
+                forecast.putString(WeatherContract.FORECAST_LOCATION_SETTING,
+                        cursor.getString(INDEX_LOCATION_SETTING));
+                forecast.putDouble(WeatherContract.FORECAST_COORD_LAT,
+                        cursor.getDouble(INDEX_COORD_LAT));
+                forecast.putDouble(WeatherContract.FORECAST_COORD_LONG,
+                        cursor.getDouble(INDEX_COORD_LONG));
+            }
+        }
+        forecast.putLongArray(WeatherContract.FORECAST_IDS, ids);
+        forecast.putLongArray(WeatherContract.FORECAST_DATES, dates);
+        forecast.putIntArray(WeatherContract.FORECAST_WEATHER_IDS, weatherIds);
+        forecast.putStringArray(WeatherContract.FORECAST_DESCRIPTIONS, descriptions);
+        forecast.putDoubleArray(WeatherContract.FORECAST_HIGHS, highs);
+        forecast.putDoubleArray(WeatherContract.FORECAST_LOWS, lows);
+        forecast.putFloatArray(WeatherContract.FORECAST_HUMIDITY, humidity);
+        forecast.putFloatArray(WeatherContract.FORECAST_PRESSURE, pressure);
+        forecast.putFloatArray(WeatherContract.FORECAST_WIND_SPEED, windSpeed);
+        forecast.putFloatArray(WeatherContract.FORECAST_DEGREES, degrees);
+        return forecast;
+    }
+
+    private static WeatherRow[] unpackForecast(Bundle forecast) {
+        long[] ids = forecast.getLongArray(WeatherContract.FORECAST_IDS);
+        long[] dates = forecast.getLongArray(WeatherContract.FORECAST_DATES);
+        int[] weatherIds = forecast.getIntArray(WeatherContract.FORECAST_WEATHER_IDS);
+        String[] descriptions = forecast.getStringArray(WeatherContract.FORECAST_DESCRIPTIONS);
+        double[] highs = forecast.getDoubleArray(WeatherContract.FORECAST_HIGHS);
+        double[] lows = forecast.getDoubleArray(WeatherContract.FORECAST_LOWS);
+        float[] humidity = forecast.getFloatArray(WeatherContract.FORECAST_HUMIDITY);
+        float[] pressure = forecast.getFloatArray(WeatherContract.FORECAST_PRESSURE);
+        float[] windSpeed = forecast.getFloatArray(WeatherContract.FORECAST_WIND_SPEED);
+        float[] degrees = forecast.getFloatArray(WeatherContract.FORECAST_DEGREES);
+        String locationSetting = forecast.getString(WeatherContract.FORECAST_LOCATION_SETTING);
+        double coordLat = forecast.getDouble(WeatherContract.FORECAST_COORD_LAT);
+        double coordLong = forecast.getDouble(WeatherContract.FORECAST_COORD_LONG);
+        if (null == ids) {
+            return new WeatherRow[0];
+        }
+
+        WeatherRow[] rows = new WeatherRow[ids.length];
+        for (int i = 0; i < rows.length; i++) {
+            WeatherRow row = new WeatherRow();
+            row.id = ids[i];
+            row.date = dates[i];
+            row.weatherId = weatherIds[i];
+            row.description = descriptions[i];
+            row.high = highs[i];
+            row.low = lows[i];
+            row.humidity = humidity[i];
+            row.pressure = pressure[i];
+            row.windSpeed = windSpeed[i];
+            row.windDirection = degrees[i];
+            row.locationSetting = locationSetting;
+            row.coordLat = coordLat;
+            row.coordLong = coordLong;
+            rows[i] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * Looks up the row id of a location.
+     *
+     * @return the row id, or -1 if the location isn't in the database yet.
+     */
+    public static long findLocationId(ContentResolver resolver, String locationSetting) {
+        Cursor locationCursor = resolver.query(
+                LocationEntry.CONTENT_URI,
+                LOCATION_ID_COLUMNS,
+                LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                new String[]{locationSetting},
+                null);
+        if (null == locationCursor) {
+            return -1;
+        }
+        try {
+            return locationCursor.moveToFirst() ? locationCursor.getLong(INDEX_LOCATION_ID) : -1;
+        } finally {
+            locationCursor.close();
+        }
+    }
+}
@@ -19,7 +19,9 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import com.example.android.sunshine.app.data.WeatherContract.ConditionEntry;
 import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.TodayEntry;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 
 /**
@@ -28,7 +30,7 @@ import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 public class WeatherDbHelper extends SQLiteOpenHelper {
 
     // If you change the database schema, you must increment the database version.
-    private static final int DATABASE_VERSION = 2;
+    private static final int DATABASE_VERSION = 4;
 
     static final String DATABASE_NAME = "weather.db";
 
@@ -48,6 +50,14 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
                 LocationEntry.COLUMN_COORD_LONG + " REAL NOT NULL " +
                 " );";
 
+        // Create a dictionary of weather conditions.  Every weather row used to carry its own
+        // copy of the description, even though the description is fully determined by the
+        // weather id; now the rows only store the id and share one description per condition.
+        final String SQL_CREATE_CONDITION_TABLE = "CREATE TABLE " + ConditionEntry.TABLE_NAME + " (" +
+                ConditionEntry._ID + " INTEGER PRIMARY KEY," +
+                ConditionEntry.COLUMN_SHORT_DESC + " TEXT NOT NULL " +
+                " );";
+
         final String SQL_CREATE_WEATHER_TABLE = "CREATE TABLE " + WeatherEntry.TABLE_NAME + " (" +
                 // Why AutoIncrement here, and not above?
                 // Unique keys will be auto-generated in either case.  But for weather
@@ -59,16 +69,17 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
                 // the ID of the location entry associated with this weather data
                 WeatherEntry.COLUMN_LOC_KEY + " INTEGER NOT NULL, " +
                 WeatherEntry.COLUMN_DATE + " INTEGER NOT NULL, " +
-                WeatherEntry.COLUMN_SHORT_DESC + " TEXT NOT NULL, " +
                 WeatherEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL," +
 
-                WeatherEntry.COLUMN_MIN_TEMP + " REAL NOT NULL, " +
-                WeatherEntry.COLUMN_MAX_TEMP + " REAL NOT NULL, " +
+                // Measurements are stored as (fixed-point) integers, which SQLite packs into
+                // one to three bytes instead of the eight it needs for a REAL.
+                WeatherEntry.COLUMN_MIN_TEMP + " INTEGER NOT NULL, " +
+                WeatherEntry.COLUMN_MAX_TEMP + " INTEGER NOT NULL, " +
 
-                WeatherEntry.COLUMN_HUMIDITY + " REAL NOT NULL, " +
-                WeatherEntry.COLUMN_PRESSURE + " REAL NOT NULL, " +
-                WeatherEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, " +
-                WeatherEntry.COLUMN_DEGREES + " REAL NOT NULL, " +
+                WeatherEntry.COLUMN_HUMIDITY + " INTEGER NOT NULL, " +
+                WeatherEntry.COLUMN_PRESSURE + " INTEGER NOT NULL, " +
+                WeatherEntry.COLUMN_WIND_SPEED + " INTEGER NOT NULL, " +
+                WeatherEntry.COLUMN_DEGREES + " INTEGER NOT NULL, " +
 
                 // Set up the location column as a foreign key to location table.
                 " FOREIGN KEY (" + WeatherEntry.COLUMN_LOC_KEY + ") REFERENCES " +
@@ -79,8 +90,31 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
                 " UNIQUE (" + WeatherEntry.COLUMN_DATE + ", " +
                 WeatherEntry.COLUMN_LOC_KEY + ") ON CONFLICT REPLACE);";
 
+        // One summary row per location, maintained by the provider.  Values are kept decoded
+        // (REAL) since there are only ever a handful of rows.
+        final String SQL_CREATE_TODAY_TABLE = "CREATE TABLE " + TodayEntry.TABLE_NAME + " (" +
+                TodayEntry.COLUMN_LOCATION_SETTING + " TEXT PRIMARY KEY, " +
+                TodayEntry.COLUMN_DATE + " INTEGER NOT NULL, " +
+                TodayEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL, " +
+                TodayEntry.COLUMN_SHORT_DESC + " TEXT, " +
+                TodayEntry.COLUMN_MIN_TEMP + " REAL NOT NULL, " +
+                TodayEntry.COLUMN_MAX_TEMP + " REAL NOT NULL, " +
+                TodayEntry.COLUMN_HUMIDITY + " REAL NOT NULL, " +
+                TodayEntry.COLUMN_PRESSURE + " REAL NOT NULL, " +
+                TodayEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, " +
+                TodayEntry.COLUMN_DEGREES + " REAL NOT NULL, " +
+                TodayEntry.COLUMN_HIGH_METRIC + " TEXT NOT NULL, " +
+                TodayEntry.COLUMN_LOW_METRIC + " TEXT NOT NULL, " +
+                TodayEntry.COLUMN_HIGH_IMPERIAL + " TEXT NOT NULL, " +
+                TodayEntry.COLUMN_LOW_IMPERIAL + " TEXT NOT NULL, " +
+                TodayEntry.COLUMN_LOCALE + " TEXT NOT NULL, " +
+                TodayEntry.COLUMN_UPDATED + " INTEGER NOT NULL " +
+                " );";
+
         sqLiteDatabase.execSQL(SQL_CREATE_LOCATION_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_CONDITION_TABLE);
         sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_TODAY_TABLE);
     }
 
     @Override
@@ -93,6 +127,8 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
         // should be your top priority before modifying this method.
         sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + LocationEntry.TABLE_NAME);
         sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.TABLE_NAME);
+        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + ConditionEntry.TABLE_NAME);
+        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + TodayEntry.TABLE_NAME);
         onCreate(sqLiteDatabase);
     }
 }
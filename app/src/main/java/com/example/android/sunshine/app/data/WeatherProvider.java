@@ -17,38 +17,133 @@ package com.example.android.sunshine.app.data;
 
 import android.annotation.TargetApi;
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
+import android.os.Bundle;
+import android.text.TextUtils;
+
+import com.example.android.sunshine.app.Utility;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 
 public class WeatherProvider extends ContentProvider {
 
     // The URI Matcher used by this content provider.
     private static final UriMatcher sUriMatcher = buildUriMatcher();
     private WeatherDbHelper mOpenHelper;
+    private final ProviderStats mStats = new ProviderStats();
+
+    // Work a batch on the current thread holds back until all of its operations are done
+    private static class Batch {
+        // The locations whose today summary must be rebuilt at the end, or all of them
+        final HashSet<Long> staleLocations = new HashSet<>();
+        boolean allLocationsStale;
+        final LinkedHashMap<Uri, Integer> notifications = new LinkedHashMap<>();
+    }
+    private final ThreadLocal<Batch> mBatch = new ThreadLocal<>();
 
     static final int WEATHER = 100;
     static final int WEATHER_WITH_LOCATION = 101;
     static final int WEATHER_WITH_LOCATION_AND_DATE = 102;
     static final int LOCATION = 300;
+    static final int TODAY = 400;
+    // Not a URI route: the stats key for METHOD_READ_FORECAST calls.
+    static final int CALL_READ_FORECAST = 900;
 
     private static final SQLiteQueryBuilder sWeatherByLocationSettingQueryBuilder;
+    private static final SQLiteQueryBuilder sWeatherQueryBuilder;
+
+    //weather LEFT JOIN condition ON weather.weather_id = condition._id
+    private static final String sWeatherWithConditionTables =
+            WeatherContract.WeatherEntry.TABLE_NAME + " LEFT JOIN " +
+                    WeatherContract.ConditionEntry.TABLE_NAME +
+                    " ON " + WeatherContract.WeatherEntry.TABLE_NAME +
+                    "." + WeatherContract.WeatherEntry.COLUMN_WEATHER_ID +
+                    " = " + WeatherContract.ConditionEntry.TABLE_NAME +
+                    "." + WeatherContract.ConditionEntry._ID;
 
     static{
         sWeatherByLocationSettingQueryBuilder = new SQLiteQueryBuilder();
         
-        //This is an inner join which looks like
-        //weather INNER JOIN location ON weather.location_id = location._id
+        //This is an inner join on top of the condition join which looks like
+        //... INNER JOIN location ON weather.location_id = location._id
         sWeatherByLocationSettingQueryBuilder.setTables(
-                WeatherContract.WeatherEntry.TABLE_NAME + " INNER JOIN " +
+                sWeatherWithConditionTables + " INNER JOIN " +
                         WeatherContract.LocationEntry.TABLE_NAME +
                         " ON " + WeatherContract.WeatherEntry.TABLE_NAME +
                         "." + WeatherContract.WeatherEntry.COLUMN_LOC_KEY +
                         " = " + WeatherContract.LocationEntry.TABLE_NAME +
                         "." + WeatherContract.LocationEntry._ID);
+        sWeatherByLocationSettingQueryBuilder.setProjectionMap(buildWeatherProjectionMap(true));
+
+        sWeatherQueryBuilder = new SQLiteQueryBuilder();
+        sWeatherQueryBuilder.setTables(sWeatherWithConditionTables);
+        sWeatherQueryBuilder.setProjectionMap(buildWeatherProjectionMap(false));
+    }
+
+    /*
+        The weather table stores its measurements as fixed-point integers and keeps the
+        description in the condition table.  This maps the column names readers ask for to
+        the expressions that decode them, so that nobody outside the provider needs to know.
+     */
+    static HashMap<String, String> buildWeatherProjectionMap(boolean withLocation) {
+        final String weather = WeatherContract.WeatherEntry.TABLE_NAME + ".";
+        final String location = WeatherContract.LocationEntry.TABLE_NAME + ".";
+        final HashMap<String, String> map = new HashMap<>();
+
+        String id = weather + WeatherContract.WeatherEntry._ID + " AS " +
+                WeatherContract.WeatherEntry._ID;
+        map.put(weather + WeatherContract.WeatherEntry._ID, id);
+        map.put(WeatherContract.WeatherEntry._ID, id);
+        putColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_LOC_KEY);
+        putColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_DATE);
+        putColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_WEATHER_ID);
+        putColumn(map, WeatherContract.ConditionEntry.TABLE_NAME + ".",
+                WeatherContract.WeatherEntry.COLUMN_SHORT_DESC);
+        putColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_HUMIDITY);
+        putColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_DEGREES);
+        putFixedPointColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+                WeatherContract.WeatherEntry.TEMPERATURE_SCALE);
+        putFixedPointColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+                WeatherContract.WeatherEntry.TEMPERATURE_SCALE);
+        putFixedPointColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+                WeatherContract.WeatherEntry.PRESSURE_SCALE);
+        putFixedPointColumn(map, weather, WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+                WeatherContract.WeatherEntry.WIND_SCALE);
+
+        if (withLocation) {
+            map.put(location + WeatherContract.LocationEntry._ID,
+                    location + WeatherContract.LocationEntry._ID);
+            putColumn(map, location, WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING);
+            putColumn(map, location, WeatherContract.LocationEntry.COLUMN_CITY_NAME);
+            putColumn(map, location, WeatherContract.LocationEntry.COLUMN_COORD_LAT);
+            putColumn(map, location, WeatherContract.LocationEntry.COLUMN_COORD_LONG);
+        }
+        return map;
+    }
+
+    private static void putColumn(HashMap<String, String> map, String table, String column) {
+        map.put(column, table + column + " AS " + column);
+    }
+
+    private static void putFixedPointColumn(HashMap<String, String> map, String table,
+                                            String column, int scale) {
+        map.put(column, table + column + " / " + scale + ".0 AS " + column);
     }
 
     //location.location_setting = ?
@@ -93,6 +188,269 @@ public class WeatherProvider extends ContentProvider {
         );
     }
 
+    /*
+        Answers every read of a METHOD_READ_BATCH call inside one transaction, so that they all
+        see the same data.  Each read is counted in the stats of the route it stands for.
+     */
+    private Bundle readBatch(Bundle extras) {
+        ArrayList<Bundle> requests = extras.getParcelableArrayList(WeatherContract.EXTRA_REQUESTS);
+        if (null == requests) {
+            throw new IllegalArgumentException("Missing " + WeatherContract.EXTRA_REQUESTS);
+        }
+        ArrayList<Bundle> results = new ArrayList<>(requests.size());
+        SQLiteDatabase db = mOpenHelper.getReadableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            for (Bundle request : requests) {
+                String locationSetting = request.getString(WeatherContract.REQUEST_LOCATION);
+                String type = request.getString(WeatherContract.REQUEST_TYPE);
+                if (WeatherContract.REQUEST_TODAY.equals(type)) {
+                    results.add(readTodayBundle(locationSetting));
+                } else if (WeatherContract.REQUEST_FORECAST.equals(type)) {
+                    results.add(readForecast(locationSetting, request));
+                } else {
+                    throw new IllegalArgumentException("Unknown read: " + type);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        Bundle reply = new Bundle();
+        reply.putParcelableArrayList(WeatherContract.EXTRA_RESULTS, results);
+        return reply;
+    }
+
+    private Bundle readTodayBundle(String locationSetting) {
+        final long start = System.nanoTime();
+        Cursor cursor = getTodaySummary(WeatherContract.TodayEntry.buildTodayUri(locationSetting),
+                WeatherDao.TODAY_COLUMNS);
+        try {
+            mStats.record(TODAY, ProviderStats.OP_QUERY, start, cursor.getCount());
+            return WeatherDao.packToday(cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Bundle readForecast(String locationSetting, Bundle extras) {
+        final long start = System.nanoTime();
+        long startDate = null == extras ? 0 : extras.getLong(WeatherContract.EXTRA_START_DATE);
+        int maxDays = null == extras ? 0 : extras.getInt(WeatherContract.EXTRA_MAX_DAYS);
+
+        String[] selectionArgs;
+        String selection;
+
+        if (startDate == 0) {
+            selection = sLocationSettingSelection;
+            selectionArgs = new String[]{locationSetting};
+        } else {
+            selectionArgs = new String[]{locationSetting,
+                    Long.toString(WeatherContract.normalizeDate(startDate))};
+            selection = sLocationSettingWithStartDateSelection;
+        }
+
+        Cursor cursor = sWeatherByLocationSettingQueryBuilder.query(
+                mOpenHelper.getReadableDatabase(),
+                WeatherDao.WEATHER_COLUMNS,
+                selection,
+                selectionArgs,
+                null,
+                null,
+                WeatherDao.SORT_BY_DATE,
+                maxDays > 0 ? Integer.toString(maxDays) : null
+        );
+        try {
+            mStats.record(CALL_READ_FORECAST, ProviderStats.OP_QUERY, start, cursor.getCount());
+            return WeatherDao.packForecast(cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    //condition._id = ? AND condition.short_desc != ?
+    private static final String sConditionChangedSelection =
+            WeatherContract.ConditionEntry._ID + " = ? AND " +
+                    WeatherContract.ConditionEntry.COLUMN_SHORT_DESC + " != ? ";
+
+    //today.date < ? OR today.locale != ?
+    private static final String sTodayStaleSelection =
+            WeatherContract.TodayEntry.COLUMN_DATE + " < ? OR " +
+                    WeatherContract.TodayEntry.COLUMN_LOCALE + " != ? ";
+
+    //today.location_setting = ?
+    private static final String sTodayLocationSettingSelection =
+            WeatherContract.TodayEntry.COLUMN_LOCATION_SETTING + " = ? ";
+
+    /*
+        Reads the summary for one location.  Writes keep it up to date; the end of the day and a
+        change of locale are handled by refreshStaleTodaySummaries, so reading never writes.
+     */
+    private Cursor getTodaySummary(Uri uri, String[] projection) {
+        String[] selectionArgs = {WeatherContract.TodayEntry.getLocationSettingFromUri(uri)};
+
+        return mOpenHelper.getReadableDatabase().query(
+                WeatherContract.TodayEntry.TABLE_NAME,
+                projection,
+                sTodayLocationSettingSelection,
+                selectionArgs,
+                null,
+                null,
+                null
+        );
+    }
+
+    /*
+        Rebuilds the today summary of the given locations from the weather table, or of every
+        location if locationIds is null.  Must be called inside the transaction of the write that
+        changed the weather, so that readers never see a summary that disagrees with the forecast.
+     */
+    private void refreshTodaySummaries(SQLiteDatabase db, Collection<Long> locationIds) {
+        Batch batch = mBatch.get();
+        if (null != batch) {
+            // Done once for the whole batch, in its transaction
+            if (null == locationIds) {
+                batch.allLocationsStale = true;
+            } else {
+                batch.staleLocations.addAll(locationIds);
+            }
+            return;
+        }
+        String selection = null;
+        if (null == locationIds) {
+            db.delete(WeatherContract.TodayEntry.TABLE_NAME, null, null);
+        } else if (locationIds.isEmpty()) {
+            return;
+        } else {
+            selection = WeatherContract.LocationEntry._ID + " IN ("
+                    + TextUtils.join(",", locationIds) + ")";
+        }
+        String today = Long.toString(WeatherContract.normalizeDate(System.currentTimeMillis()));
+        String locale = Locale.getDefault().toString();
+        long now = System.currentTimeMillis();
+
+        Cursor locations = db.query(WeatherContract.LocationEntry.TABLE_NAME,
+                new String[]{WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING},
+                selection, null, null, null, null);
+        try {
+            WeatherRow row = new WeatherRow();
+            while (locations.moveToNext()) {
+                String locationSetting = locations.getString(0);
+                if (null != locationIds) {
+                    db.delete(WeatherContract.TodayEntry.TABLE_NAME,
+                            sTodayLocationSettingSelection, new String[]{locationSetting});
+                }
+                Cursor cursor = sWeatherByLocationSettingQueryBuilder.query(db,
+                        WeatherDao.WEATHER_COLUMNS,
+                        sLocationSettingWithStartDateSelection,
+                        new String[]{locationSetting, today},
+                        null,
+                        null,
+                        WeatherDao.SORT_BY_DATE,
+                        "1"
+                );
+                try {
+                    if (cursor.moveToFirst()) {
+                        WeatherDao.readRow(cursor, row);
+                        db.insert(WeatherContract.TodayEntry.TABLE_NAME, null,
+                                buildTodayValues(row, locale, now));
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+        } finally {
+            locations.close();
+        }
+    }
+
+    /*
+        Two things change a summary without a write to the weather: the day can end, which makes
+        the stored day the past, and the locale can change, which makes the formatted strings
+        wrong.  TimeChangeReceiver calls this when either may have happened; the summaries are
+        rebuilt only if one of them is actually out of date.
+     */
+    private void refreshStaleTodaySummaries() {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        boolean stale;
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query(WeatherContract.TodayEntry.TABLE_NAME,
+                    new String[]{WeatherContract.TodayEntry.COLUMN_DATE},
+                    sTodayStaleSelection,
+                    new String[]{
+                            Long.toString(WeatherContract.normalizeDate(System.currentTimeMillis())),
+                            Locale.getDefault().toString()},
+                    null, null, null, "1");
+            try {
+                stale = cursor.moveToFirst();
+            } finally {
+                cursor.close();
+            }
+            if (stale) {
+                refreshTodaySummaries(db, null);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (stale) {
+            notifyTodayChange();
+        }
+    }
+
+    /*
+        The locations that have weather rows matching the selection, to be collected before a
+        write that may remove or move those rows.
+     */
+    private static HashSet<Long> queryLocationIds(
+            SQLiteDatabase db, String selection, String[] selectionArgs) {
+        HashSet<Long> locationIds = new HashSet<>();
+        Cursor cursor = db.query(true, WeatherContract.WeatherEntry.TABLE_NAME,
+                new String[]{WeatherContract.WeatherEntry.COLUMN_LOC_KEY},
+                selection, selectionArgs, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                locationIds.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return locationIds;
+    }
+
+    private static void addLocationId(Collection<Long> locationIds, ContentValues values) {
+        Long locationId = values.getAsLong(WeatherContract.WeatherEntry.COLUMN_LOC_KEY);
+        if (null != locationId) {
+            locationIds.add(locationId);
+        }
+    }
+
+    private ContentValues buildTodayValues(WeatherRow row, String locale, long now) {
+        ContentValues values = new ContentValues();
+        values.put(WeatherContract.TodayEntry.COLUMN_LOCATION_SETTING, row.locationSetting);
+        values.put(WeatherContract.TodayEntry.COLUMN_DATE, row.date);
+        values.put(WeatherContract.TodayEntry.COLUMN_WEATHER_ID, row.weatherId);
+        values.put(WeatherContract.TodayEntry.COLUMN_SHORT_DESC, row.description);
+        values.put(WeatherContract.TodayEntry.COLUMN_MIN_TEMP, row.low);
+        values.put(WeatherContract.TodayEntry.COLUMN_MAX_TEMP, row.high);
+        values.put(WeatherContract.TodayEntry.COLUMN_HUMIDITY, row.humidity);
+        values.put(WeatherContract.TodayEntry.COLUMN_PRESSURE, row.pressure);
+        values.put(WeatherContract.TodayEntry.COLUMN_WIND_SPEED, row.windSpeed);
+        values.put(WeatherContract.TodayEntry.COLUMN_DEGREES, row.windDirection);
+        values.put(WeatherContract.TodayEntry.COLUMN_HIGH_METRIC,
+                Utility.formatTemperature(getContext(), row.high, true));
+        values.put(WeatherContract.TodayEntry.COLUMN_LOW_METRIC,
+                Utility.formatTemperature(getContext(), row.low, true));
+        values.put(WeatherContract.TodayEntry.COLUMN_HIGH_IMPERIAL,
+                Utility.formatTemperature(getContext(), row.high, false));
+        values.put(WeatherContract.TodayEntry.COLUMN_LOW_IMPERIAL,
+                Utility.formatTemperature(getContext(), row.low, false));
+        values.put(WeatherContract.TodayEntry.COLUMN_LOCALE, locale);
+        values.put(WeatherContract.TodayEntry.COLUMN_UPDATED, now);
+        return values;
+    }
+
     private Cursor getWeatherByLocationSettingAndDate(
             Uri uri, String[] projection, String sortOrder) {
         String locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
@@ -130,6 +488,7 @@ public class WeatherProvider extends ContentProvider {
         matcher.addURI(authority, WeatherContract.PATH_WEATHER + "/*/#", WEATHER_WITH_LOCATION_AND_DATE);
 
         matcher.addURI(authority, WeatherContract.PATH_LOCATION, LOCATION);
+        matcher.addURI(authority, WeatherContract.PATH_TODAY + "/*", TODAY);
         return matcher;
     }
 
@@ -140,6 +499,12 @@ public class WeatherProvider extends ContentProvider {
     @Override
     public boolean onCreate() {
         mOpenHelper = new WeatherDbHelper(getContext());
+        mStats.addRoute(WEATHER, "weather");
+        mStats.addRoute(WEATHER_WITH_LOCATION, "weather/*");
+        mStats.addRoute(WEATHER_WITH_LOCATION_AND_DATE, "weather/*/#");
+        mStats.addRoute(LOCATION, "location");
+        mStats.addRoute(TODAY, "today/*");
+        mStats.addRoute(CALL_READ_FORECAST, "call:" + WeatherContract.METHOD_READ_FORECAST);
         return true;
     }
 
@@ -164,6 +529,8 @@ public class WeatherProvider extends ContentProvider {
                 return WeatherContract.WeatherEntry.CONTENT_TYPE;
             case LOCATION:
                 return WeatherContract.LocationEntry.CONTENT_TYPE;
+            case TODAY:
+                return WeatherContract.TodayEntry.CONTENT_ITEM_TYPE;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -174,8 +541,10 @@ public class WeatherProvider extends ContentProvider {
                         String sortOrder) {
         // Here's the switch statement that, given a URI, will determine what kind of request it is,
         // and query the database accordingly.
+        final long start = System.nanoTime();
+        final int match = sUriMatcher.match(uri);
         Cursor retCursor;
-        switch (sUriMatcher.match(uri)) {
+        switch (match) {
             // "weather/*/*"
             case WEATHER_WITH_LOCATION_AND_DATE:
             {
@@ -189,8 +558,7 @@ public class WeatherProvider extends ContentProvider {
             }
             // "weather"
             case WEATHER: {
-                retCursor = mOpenHelper.getReadableDatabase().query(
-                        WeatherContract.WeatherEntry.TABLE_NAME,
+                retCursor = sWeatherQueryBuilder.query(mOpenHelper.getReadableDatabase(),
                         projection,
                         selection,
                         selectionArgs,
@@ -213,12 +581,19 @@ public class WeatherProvider extends ContentProvider {
                 );
                 break;
             }
+            // "today/*"
+            case TODAY: {
+                retCursor = getTodaySummary(uri, projection);
+                break;
+            }
 
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
         retCursor.setNotificationUri(getContext().getContentResolver(), uri);
-        return retCursor;
+        // SQLite only runs the query once the cursor is first read, so the call is recorded
+        // then, with the time the first read took.
+        return mStats.recordQuery(match, start, retCursor);
     }
 
     /*
@@ -226,18 +601,33 @@ public class WeatherProvider extends ContentProvider {
      */
     @Override
     public Uri insert(Uri uri, ContentValues values) {
+        final long start = System.nanoTime();
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final int match = sUriMatcher.match(uri);
         Uri returnUri;
 
         switch (match) {
             case WEATHER: {
-                normalizeDate(values);
-                long _id = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, values);
+                long _id;
+                db.beginTransaction();
+                try {
+                    normalizeDate(values);
+                    boolean conditionChanged = encodeWeatherValues(db, values);
+                    _id = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, values);
+                    if (_id > 0) {
+                        HashSet<Long> locationIds = new HashSet<>();
+                        addLocationId(locationIds, values);
+                        refreshTodaySummaries(db, conditionChanged ? null : locationIds);
+                        db.setTransactionSuccessful();
+                    }
+                } finally {
+                    db.endTransaction();
+                }
                 if ( _id > 0 )
                     returnUri = WeatherContract.WeatherEntry.buildWeatherUri(_id);
                 else
                     throw new android.database.SQLException("Failed to insert row into " + uri);
+                notifyTodayChange();
                 break;
             }
             case LOCATION: {
@@ -251,33 +641,49 @@ public class WeatherProvider extends ContentProvider {
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
-        getContext().getContentResolver().notifyChange(uri, null);
+        notifyChange(match, uri);
+        mStats.record(match, ProviderStats.OP_INSERT, start, 1);
         return returnUri;
     }
 
     @Override
     public int delete(Uri uri, String selection, String[] selectionArgs) {
+        final long start = System.nanoTime();
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final int match = sUriMatcher.match(uri);
         int rowsDeleted;
+        // The locations whose summary the delete touches; null for all of them
+        HashSet<Long> locationIds = null;
         // this makes delete all rows return the number of rows deleted
         if ( null == selection ) selection = "1";
-        switch (match) {
-            case WEATHER:
-                rowsDeleted = db.delete(
-                        WeatherContract.WeatherEntry.TABLE_NAME, selection, selectionArgs);
-                break;
-            case LOCATION:
-                rowsDeleted = db.delete(
-                        WeatherContract.LocationEntry.TABLE_NAME, selection, selectionArgs);
-                break;
-            default:
-                throw new UnsupportedOperationException("Unknown uri: " + uri);
+        db.beginTransaction();
+        try {
+            switch (match) {
+                case WEATHER:
+                    locationIds = queryLocationIds(db, selection, selectionArgs);
+                    rowsDeleted = db.delete(
+                            WeatherContract.WeatherEntry.TABLE_NAME, selection, selectionArgs);
+                    break;
+                case LOCATION:
+                    rowsDeleted = db.delete(
+                            WeatherContract.LocationEntry.TABLE_NAME, selection, selectionArgs);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unknown uri: " + uri);
+            }
+            if (rowsDeleted != 0) {
+                refreshTodaySummaries(db, locationIds);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
         // Because a null deletes all rows
         if (rowsDeleted != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(match, uri);
+            notifyTodayChange();
         }
+        mStats.record(match, ProviderStats.OP_DELETE, start, rowsDeleted);
         return rowsDeleted;
     }
 
@@ -289,59 +695,206 @@ public class WeatherProvider extends ContentProvider {
         }
     }
 
+    /*
+        Converts the decoded values callers hand us into the storage format of the weather
+        table: measurements become fixed-point integers and the description goes into the
+        condition dictionary, keyed by weather id.  The newest description of an id wins, so a
+        pushed correction is not lost to the one already stored.  Returns whether a stored
+        description changed, which every location's summary may show.
+     */
+    private boolean encodeWeatherValues(SQLiteDatabase db, ContentValues values) {
+        boolean conditionChanged = false;
+        if (values.containsKey(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC)) {
+            String description = values.getAsString(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC);
+            Integer weatherId = values.getAsInteger(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID);
+            values.remove(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC);
+            if (null != description && null != weatherId) {
+                ContentValues conditionValues = new ContentValues();
+                conditionValues.put(WeatherContract.ConditionEntry._ID, weatherId);
+                conditionValues.put(WeatherContract.ConditionEntry.COLUMN_SHORT_DESC, description);
+                long conditionId = db.insertWithOnConflict(WeatherContract.ConditionEntry.TABLE_NAME,
+                        null, conditionValues, SQLiteDatabase.CONFLICT_IGNORE);
+                if (conditionId == -1) {
+                    // Only written when it differs, as nearly every sync repeats it
+                    conditionChanged = db.update(WeatherContract.ConditionEntry.TABLE_NAME,
+                            conditionValues, sConditionChangedSelection,
+                            new String[]{Integer.toString(weatherId), description}) > 0;
+                }
+            }
+        }
+        encodeFixedPoint(values, WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+                WeatherContract.WeatherEntry.TEMPERATURE_SCALE);
+        encodeFixedPoint(values, WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+                WeatherContract.WeatherEntry.TEMPERATURE_SCALE);
+        encodeFixedPoint(values, WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+                WeatherContract.WeatherEntry.PRESSURE_SCALE);
+        encodeFixedPoint(values, WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+                WeatherContract.WeatherEntry.WIND_SCALE);
+        encodeFixedPoint(values, WeatherContract.WeatherEntry.COLUMN_HUMIDITY, 1);
+        encodeFixedPoint(values, WeatherContract.WeatherEntry.COLUMN_DEGREES, 1);
+        return conditionChanged;
+    }
+
+    private static void encodeFixedPoint(ContentValues values, String column, int scale) {
+        Double value = values.getAsDouble(column);
+        if (null != value) {
+            values.put(column, Math.round(value * scale));
+        }
+    }
+
     @Override
     public int update(
             Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        final long start = System.nanoTime();
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final int match = sUriMatcher.match(uri);
         int rowsUpdated;
-
-        switch (match) {
-            case WEATHER:
-                normalizeDate(values);
-                rowsUpdated = db.update(WeatherContract.WeatherEntry.TABLE_NAME, values, selection,
-                        selectionArgs);
-                break;
-            case LOCATION:
-                rowsUpdated = db.update(WeatherContract.LocationEntry.TABLE_NAME, values, selection,
-                        selectionArgs);
-                break;
-            default:
-                throw new UnsupportedOperationException("Unknown uri: " + uri);
+        // The locations whose summary the update touches; null for all of them
+        HashSet<Long> locationIds = null;
+
+        db.beginTransaction();
+        try {
+            switch (match) {
+                case WEATHER:
+                    normalizeDate(values);
+                    boolean conditionChanged = encodeWeatherValues(db, values);
+                    // Both where the rows were and, if they move, where they go
+                    locationIds = queryLocationIds(db, selection, selectionArgs);
+                    addLocationId(locationIds, values);
+                    if (conditionChanged) {
+                        locationIds = null;
+                    }
+                    rowsUpdated = db.update(WeatherContract.WeatherEntry.TABLE_NAME, values,
+                            selection, selectionArgs);
+                    break;
+                case LOCATION:
+                    rowsUpdated = db.update(WeatherContract.LocationEntry.TABLE_NAME, values,
+                            selection, selectionArgs);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Unknown uri: " + uri);
+            }
+            if (rowsUpdated != 0) {
+                refreshTodaySummaries(db, locationIds);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
         }
         if (rowsUpdated != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(match, uri);
+            notifyTodayChange();
         }
+        mStats.record(match, ProviderStats.OP_UPDATE, start, rowsUpdated);
         return rowsUpdated;
     }
 
     @Override
     public int bulkInsert(Uri uri, ContentValues[] values) {
+        final long start = System.nanoTime();
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final int match = sUriMatcher.match(uri);
         switch (match) {
             case WEATHER:
                 db.beginTransaction();
                 int returnCount = 0;
+                HashSet<Long> locationIds = new HashSet<>();
+                boolean conditionChanged = false;
                 try {
                     for (ContentValues value : values) {
                         normalizeDate(value);
+                        conditionChanged |= encodeWeatherValues(db, value);
                         long _id = db.insert(WeatherContract.WeatherEntry.TABLE_NAME, null, value);
                         if (_id != -1) {
                             returnCount++;
+                            addLocationId(locationIds, value);
                         }
                     }
+                    refreshTodaySummaries(db, conditionChanged ? null : locationIds);
                     db.setTransactionSuccessful();
                 } finally {
                     db.endTransaction();
                 }
-                getContext().getContentResolver().notifyChange(uri, null);
+                notifyChange(match, uri);
+                notifyTodayChange();
+                mStats.record(match, ProviderStats.OP_BULK_INSERT, start, returnCount);
                 return returnCount;
             default:
                 return super.bulkInsert(uri, values);
         }
     }
 
+    private void notifyChange(int match, Uri uri) {
+        Batch batch = mBatch.get();
+        if (null != batch) {
+            batch.notifications.put(uri, match);
+            return;
+        }
+        getContext().getContentResolver().notifyChange(uri, null);
+        mStats.recordNotification(match);
+    }
+
+    /*
+        Applies the whole batch in one transaction, so it either lands completely or not at all.
+        The today summaries are rebuilt once at the end rather than after every operation, and
+        observers hear about each changed uri once, after the commit.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        Batch batch = new Batch();
+        ContentProviderResult[] results;
+        db.beginTransaction();
+        try {
+            mBatch.set(batch);
+            results = super.applyBatch(operations);
+            mBatch.remove();
+            if (batch.allLocationsStale) {
+                refreshTodaySummaries(db, null);
+            } else {
+                refreshTodaySummaries(db, batch.staleLocations);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            mBatch.remove();
+            db.endTransaction();
+        }
+        for (Map.Entry<Uri, Integer> notification : batch.notifications.entrySet()) {
+            notifyChange(notification.getValue(), notification.getKey());
+        }
+        return results;
+    }
+
+    // Observers of any today/* uri are notified through their common parent.
+    private void notifyTodayChange() {
+        notifyChange(TODAY, WeatherContract.TodayEntry.CONTENT_URI);
+    }
+
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (WeatherContract.METHOD_GET_PROVIDER_STATS.equals(method)) {
+            return mStats.toBundle();
+        } else if (WeatherContract.METHOD_READ_FORECAST.equals(method)) {
+            return readForecast(arg, extras);
+        } else if (WeatherContract.METHOD_READ_BATCH.equals(method)) {
+            return readBatch(extras);
+        } else if (WeatherContract.METHOD_REFRESH_TODAY.equals(method)) {
+            refreshStaleTodaySummaries();
+            return null;
+        } else if (WeatherContract.METHOD_RESET_PROVIDER_STATS.equals(method)) {
+            mStats.reset();
+            return null;
+        }
+        return super.call(method, arg, extras);
+    }
+
+    // Shows up in "adb shell dumpsys activity provider WeatherProvider".
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        mStats.dump(writer);
+    }
+
     // You do not need to call this method. This is a method specifically to assist the testing
     // framework in running smoothly. You can read more at:
     // http://developer.android.com/reference/android/content/ContentProvider.html#shutdown()
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+/**
+ * One day of weather for a location, as read by {@link WeatherDao}.
+ *
+ * The fields are deliberately plain and mutable so that a reader can keep a single instance
+ * around and refill it for every row it visits, instead of allocating per row.
+ */
+public class WeatherRow {
+    public long id;
+    public long date;
+    public int weatherId;
+    public String description;
+    public double high;
+    public double low;
+    public float humidity;
+    public float pressure;
+    public float windSpeed;
+    public float windDirection;
+    public String locationSetting;
+    public double coordLat;
+    public double coordLong;
+}
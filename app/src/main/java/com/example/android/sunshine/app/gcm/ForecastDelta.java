@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.gcm;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.os.RemoteException;
+import android.text.format.Time;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherDao;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Changes to stored forecast days, pushed by the server instead of fetched by a sync.
+ *
+ * The message's data holds an object like:
+ * <pre>
+ * {"forecast": {"location": "94043",
+ *               "days": [{"date": "2016-10-19", "max": 21.5, "min": 12},
+ *                        {"date": "2016-10-20", "weather_id": 500, "short_desc": "Rain"}]}}
+ * </pre>
+ * Days are calendar dates rather than instants, so that they name the same day in every time
+ * zone.  Each day names the fields that changed, by their weather table column.  A new condition must
+ * come with both weather_id and short_desc.  Days that aren't stored yet are left to the next
+ * sync.
+ */
+class ForecastDelta {
+    static final String KEY_FORECAST = "forecast";
+    private static final String KEY_LOCATION = "location";
+    private static final String KEY_DAYS = "days";
+    private static final String DATE_FORMAT = "yyyy-MM-dd";
+
+    // Columns a delta may change
+    private static final String[] DOUBLE_COLUMNS = {
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES
+    };
+
+    final String locationSetting;
+    final long[] dates;
+    final ContentValues[] changes;
+
+    private ForecastDelta(String locationSetting, long[] dates, ContentValues[] changes) {
+        this.locationSetting = locationSetting;
+        this.dates = dates;
+        this.changes = changes;
+    }
+
+    /**
+     * Reads the delta from the "forecast" object of a message.
+     *
+     * @throws JSONException if the delta is malformed or changes a column it may not
+     */
+    static ForecastDelta fromJson(JSONObject forecast) throws JSONException {
+        String locationSetting = forecast.getString(KEY_LOCATION);
+        JSONArray days = forecast.getJSONArray(KEY_DAYS);
+        long[] dates = new long[days.length()];
+        ContentValues[] changes = new ContentValues[days.length()];
+        for (int i = 0; i < days.length(); i++) {
+            JSONObject day = days.getJSONObject(i);
+            dates[i] = parseDate(day.getString(WeatherContract.WeatherEntry.COLUMN_DATE));
+            changes[i] = readChanges(day);
+        }
+        return new ForecastDelta(locationSetting, dates, changes);
+    }
+
+    /**
+     * Turns a calendar date into the start of that day in the local time zone, the way
+     * SunshineSyncAdapter stores it.
+     */
+    static long parseDate(String date) throws JSONException {
+        // Julian days count whole UTC days, so the date is read as midnight UTC
+        SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        format.setLenient(false);
+        long utcMidnight;
+        try {
+            utcMidnight = format.parse(date).getTime();
+        } catch (ParseException e) {
+            throw new JSONException("Malformed forecast date " + date);
+        }
+        return new Time().setJulianDay(Time.getJulianDay(utcMidnight, 0));
+    }
+
+    private static ContentValues readChanges(JSONObject day) throws JSONException {
+        ContentValues values = new ContentValues();
+        for (String column : DOUBLE_COLUMNS) {
+            if (day.has(column)) {
+                values.put(column, day.getDouble(column));
+            }
+        }
+        boolean hasWeatherId = day.has(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID);
+        if (hasWeatherId != day.has(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC)) {
+            throw new JSONException("weather_id and short_desc must change together");
+        }
+        if (hasWeatherId) {
+            values.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+                    day.getInt(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID));
+            values.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+                    day.getString(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC));
+        }
+
+        Iterator<String> keys = day.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!values.containsKey(key) && !WeatherContract.WeatherEntry.COLUMN_DATE.equals(key)) {
+                throw new JSONException("Unknown forecast field " + key);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Writes the changes to the weather provider as one batch, so they land in a single
+     * transaction.
+     *
+     * @return the number of stored days that changed; 0 if the location isn't stored
+     */
+    int apply(ContentResolver resolver) throws RemoteException, OperationApplicationException {
+        long locationId = WeatherDao.findLocationId(resolver, locationSetting);
+        if (locationId == -1) {
+            return 0;
+        }
+        String selection = WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ? AND "
+                + WeatherContract.WeatherEntry.COLUMN_DATE + " = ?";
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(dates.length);
+        for (int i = 0; i < dates.length; i++) {
+            if (changes[i].size() == 0) {
+                continue;
+            }
+            operations.add(ContentProviderOperation
+                    .newUpdate(WeatherContract.WeatherEntry.CONTENT_URI)
+                    .withSelection(selection, new String[]{
+                            Long.toString(locationId), Long.toString(dates[i])})
+                    .withValues(changes[i])
+                    .build());
+        }
+        if (operations.isEmpty()) {
+            return 0;
+        }
+        int changed = 0;
+        for (ContentProviderResult result : resolver.applyBatch(
+                WeatherContract.CONTENT_AUTHORITY, operations)) {
+            changed += result.count;
+        }
+        return changed;
+    }
+}
@@ -20,15 +20,18 @@ import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.OperationApplicationException;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.Bundle;
+import android.os.RemoteException;
 import android.support.v4.app.NotificationCompat;
 import android.util.Log;
 import android.widget.Toast;
 
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 import com.google.android.gms.gcm.GcmListenerService;
 
 import org.json.JSONException;
@@ -62,42 +65,73 @@ public class MyGcmListenerService extends GcmListenerService {
             }
             // Not a bad idea to check that the message is coming from your server.
             if ((senderId).equals(from)) {
-                // Process message and then post a notification of the received message.
-                try {
-                    JSONObject jsonObject = new JSONObject(data.getString(EXTRA_DATA));
-                    String weather = jsonObject.getString(EXTRA_WEATHER);
-                    String location = jsonObject.getString(EXTRA_LOCATION);
-                    String alert =
-                            String.format(getString(R.string.gcm_weather_alert), weather, location);
-                    sendNotification(alert);
-                } catch (JSONException e) {
-                    // JSON parsing failed, so we just let this message go, since GCM is not one
-                    // of our critical features.
-                }
+                handleMessage(this, data);
             }
             Log.i(TAG, "Received: " + data.toString());
         }
     }
 
+    /**
+     * Processes a message from our server: either forecast changes, which are stored right
+     * away, or an alert, which is posted as a notification.
+     */
+    static void handleMessage(Context context, Bundle data) {
+        try {
+            JSONObject jsonObject = new JSONObject(data.getString(EXTRA_DATA));
+            if (jsonObject.has(ForecastDelta.KEY_FORECAST)) {
+                applyForecastDelta(context,
+                        ForecastDelta.fromJson(jsonObject.getJSONObject(ForecastDelta.KEY_FORECAST)));
+            } else {
+                String weather = jsonObject.getString(EXTRA_WEATHER);
+                String location = jsonObject.getString(EXTRA_LOCATION);
+                String alert = String.format(context.getString(R.string.gcm_weather_alert),
+                        weather, location);
+                sendNotification(context, alert);
+            }
+        } catch (JSONException e) {
+            // JSON parsing failed, so we just let this message go, since GCM is not one
+            // of our critical features.
+            Log.w(TAG, "Ignoring malformed message", e);
+        }
+    }
+
+    /**
+     * Stores pushed forecast changes and lets the widgets, Muzei and the notification know,
+     * just like a sync would, but without fetching anything.
+     */
+    private static void applyForecastDelta(Context context, ForecastDelta delta) {
+        int changed;
+        try {
+            changed = delta.apply(context.getContentResolver());
+        } catch (RemoteException | OperationApplicationException e) {
+            // The next sync will bring the same data
+            Log.e(TAG, "Couldn't apply forecast changes", e);
+            return;
+        }
+        if (changed > 0) {
+            SunshineSyncAdapter.onDataUpdated(context, null);
+        }
+    }
+
     /**
      *  Put the message into a notification and post it.
      *  This is just one simple example of what you might choose to do with a GCM message.
      *
      * @param message The alert message to be posted.
      */
-    private void sendNotification(String message) {
+    private static void sendNotification(Context context, String message) {
         NotificationManager mNotificationManager =
-                (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
         PendingIntent contentIntent =
-                PendingIntent.getActivity(this, 0, new Intent(this, MainActivity.class), 0);
+                PendingIntent.getActivity(context, 0, new Intent(context, MainActivity.class), 0);
 
         // Notifications using both a large and a small icon (which yours should!) need the large
         // icon as a bitmap. So we need to create that here from the resource ID, and pass the
         // object along in our notification builder. Generally, you want to use the app icon as the
         // small icon, so that users understand what app is triggering this notification.
-        Bitmap largeIcon = BitmapFactory.decodeResource(this.getResources(), R.drawable.art_storm);
+        Bitmap largeIcon = BitmapFactory.decodeResource(context.getResources(), R.drawable.art_storm);
         NotificationCompat.Builder mBuilder =
-                new NotificationCompat.Builder(this)
+                new NotificationCompat.Builder(context)
                         .setSmallIcon(R.drawable.art_clear)
                         .setLargeIcon(largeIcon)
                         .setContentTitle("Weather Alert!")
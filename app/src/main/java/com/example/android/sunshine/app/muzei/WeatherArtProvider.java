@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.muzei;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the wallpapers that {@link WeatherMuzeiSource} staged on local storage, so that Muzei
+ * loads them from here instead of downloading the originals.
+ *
+ * It is exported because Muzei opens the images from its own process, but it only ever hands
+ * out read-only access to files in the staging directory.
+ */
+public class WeatherArtProvider extends ContentProvider {
+    public static final String AUTHORITY = "com.example.android.sunshine.app.muzei";
+
+    private static final String ART_DIRECTORY = "muzei";
+    private static final Pattern ART_FILE_NAME = Pattern.compile("[a-z0-9_]+\\.jpg");
+
+    static File getArtDirectory(Context context) {
+        return new File(context.getFilesDir(), ART_DIRECTORY);
+    }
+
+    static Uri buildArtUri(String fileName) {
+        return new Uri.Builder().scheme("content").authority(AUTHORITY)
+                .appendPath(fileName).build();
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+        if (!"r".equals(mode)) {
+            throw new FileNotFoundException("Read only: " + uri);
+        }
+        List<String> segments = uri.getPathSegments();
+        if (segments.size() != 1 || !ART_FILE_NAME.matcher(segments.get(0)).matches()) {
+            throw new FileNotFoundException("Unknown uri: " + uri);
+        }
+        String fileName = segments.get(0);
+        File file = new File(getArtDirectory(getContext()), fileName);
+        return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return "image/jpeg";
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                        String sortOrder) {
+        return null;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("Read only: " + uri);
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Read only: " + uri);
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Read only: " + uri);
+    }
+}
@@ -16,27 +16,39 @@
 package com.example.android.sunshine.app.muzei;
 
 import android.content.Intent;
-import android.database.Cursor;
+import android.graphics.Bitmap;
 import android.net.Uri;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.FutureTarget;
 
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.Utility;
-import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.TodaySummary;
+import com.example.android.sunshine.app.data.WeatherDao;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 import com.google.android.apps.muzei.api.Artwork;
 import com.google.android.apps.muzei.api.MuzeiArtSource;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+
 /**
  * Muzei source that changes your background based on the current weather conditions
+ *
+ * The wallpaper is only republished when the conditions shown actually change, and the images
+ * are served to Muzei from a downscaled local copy, so most syncs cost Muzei nothing.
  */
 public class WeatherMuzeiSource extends MuzeiArtSource {
-    private static final String[] FORECAST_COLUMNS = new String[]{
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
-    };
-    // these indices must match the projection
-    private static final int INDEX_WEATHER_ID = 0;
-    private static final int INDEX_SHORT_DESC = 1;
+    private static final String LOG_TAG = WeatherMuzeiSource.class.getSimpleName();
+
+    private static final int STAGED_IMAGE_QUALITY = 90;
 
     public WeatherMuzeiSource() {
         super("WeatherMuzeiSource");
@@ -55,25 +67,91 @@ public class WeatherMuzeiSource extends MuzeiArtSource {
     @Override
     protected void onUpdate(int reason) {
         String location = Utility.getPreferredLocation(this);
-        Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
-                location, System.currentTimeMillis());
-        Cursor cursor = getContentResolver().query(weatherForLocationUri, FORECAST_COLUMNS, null,
-                null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
-        if (cursor.moveToFirst()) {
-            int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-            String desc = cursor.getString(INDEX_SHORT_DESC);
+        TodaySummary today = WeatherDao.readToday(getContentResolver(), location);
+        if (today != null) {
+            int weatherId = today.weatherId;
+            String desc = today.description;
 
             String imageUrl = Utility.getImageUrlForWeatherCondition(weatherId);
             // Only publish a new wallpaper if we have a valid image
             if (imageUrl != null) {
+                // The token identifies what the artwork shows; if Muzei already has it, there
+                // is nothing to do
+                String token = imageUrl + '|' + desc + '|' + location;
+                Artwork current = getCurrentArtwork();
+                if (reason != UPDATE_REASON_INITIAL && current != null
+                        && token.equals(current.getToken())) {
+                    return;
+                }
+
+                Uri imageUri = stageImage(imageUrl);
                 publishArtwork(new Artwork.Builder()
-                        .imageUri(Uri.parse(imageUrl))
+                        .imageUri(null != imageUri ? imageUri : Uri.parse(imageUrl))
                         .title(desc)
                         .byline(location)
+                        .token(token)
                         .viewIntent(new Intent(this, MainActivity.class))
                         .build());
             }
         }
-        cursor.close();
+    }
+
+    /**
+     * Makes sure there is a local copy of the image, scaled down close to the size of the
+     * screen, and returns the {@link WeatherArtProvider} URI for it.  Each condition's image is
+     * only downloaded once.
+     *
+     * @return null if the image couldn't be staged; Muzei will have to fetch it itself
+     */
+    private Uri stageImage(String imageUrl) {
+        String fileName = "weather_" + Integer.toHexString(imageUrl.hashCode()) + ".jpg";
+        File directory = WeatherArtProvider.getArtDirectory(this);
+        File file = new File(directory, fileName);
+        if (file.exists()) {
+            return WeatherArtProvider.buildArtUri(fileName);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return null;
+        }
+
+        // Downsample to at least the screen's longer side, whatever the orientation, so that
+        // Muzei can still crop and pan the image without upscaling it
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        int size = Math.max(metrics.widthPixels, metrics.heightPixels);
+        FutureTarget<Bitmap> target = Glide.with(this)
+                .load(imageUrl)
+                .asBitmap()
+                .approximate()
+                .dontTransform()
+                .into(size, size);
+        File tempFile = new File(directory, fileName + ".tmp");
+        OutputStream out = null;
+        try {
+            Bitmap bitmap = target.get();
+            out = new BufferedOutputStream(new FileOutputStream(tempFile));
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, STAGED_IMAGE_QUALITY, out)) {
+                return null;
+            }
+            out.close();
+            out = null;
+            // Renamed into place only once complete, so Muzei never sees a partial file
+            if (!tempFile.renameTo(file)) {
+                return null;
+            }
+            return WeatherArtProvider.buildArtUri(fileName);
+        } catch (InterruptedException | ExecutionException | IOException e) {
+            Log.e(LOG_TAG, "Error staging wallpaper from " + imageUrl, e);
+            return null;
+        } finally {
+            Glide.clear(target);
+            if (null != out) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // Nothing left to do with it
+                }
+            }
+            tempFile.delete();
+        }
     }
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Receives the delete intent of the weather notification, so that later changes to the same
+ * day's weather don't post it again.
+ */
+public class NotificationDismissedReceiver extends BroadcastReceiver {
+    static final String EXTRA_DAY = "day";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (intent.hasExtra(EXTRA_DAY)) {
+            WeatherNotificationComposer.onDismissed(context, intent.getLongExtra(EXTRA_DAY, 0));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.annotation.SuppressLint;
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.preference.PreferenceManager;
+import android.support.v4.app.NotificationCompat;
+import android.support.v4.app.TaskStackBuilder;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.example.android.sunshine.app.MainActivity;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.SettingsSnapshot;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.WeatherRow;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Keeps the weather notification in step with today's weather.
+ *
+ * It is handed today's values as they are stored, so it never has to read them back.  The
+ * first weather of a new day is posted as a fresh notification; later changes on the same day
+ * quietly update it, unless the user dismissed it; and weather that reads the same as what was
+ * last posted is ignored.  What was last posted, and the day of the last dismissal, are
+ * remembered in the preferences, so this holds across process restarts.
+ */
+class WeatherNotificationComposer {
+    private static final String LOG_TAG = WeatherNotificationComposer.class.getSimpleName();
+
+    private static final int WEATHER_NOTIFICATION_ID = 3004;
+    private static final String PREF_LAST_NOTIFICATION_CONTENT = "last_notification_content";
+    private static final String PREF_DISMISSED_DAY = "notification_dismissed_day";
+
+    // Mirror of what was last posted, loaded from the preferences on first use
+    private static boolean sLoaded;
+    private static long sLastDay;
+    private static String sLastContent;
+    private static long sDismissedDay;
+
+    private WeatherNotificationComposer() {
+    }
+
+    /**
+     * Posts or updates the notification for today's weather, if that changes what it shows.
+     *
+     * @param today the weather for the first day of the forecast; only its date, weather id,
+     *              description and temperatures are used
+     */
+    static synchronized void onTodayUpdated(Context context, WeatherRow today) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
+        boolean displayNotifications = prefs.getBoolean(displayNotificationsKey,
+                Boolean.parseBoolean(context.getString(R.string.pref_enable_notifications_default)));
+        if (!displayNotifications) {
+            return;
+        }
+
+        SettingsSnapshot settings = SettingsSnapshot.get(context);
+        String contentText = String.format(context.getString(R.string.format_notification),
+                today.description,
+                Utility.formatTemperature(context, today.high, settings.isMetric),
+                Utility.formatTemperature(context, today.low, settings.isMetric));
+        String artUrl = Utility.getArtUrlForWeatherCondition(context, today.weatherId);
+        String content = today.weatherId + "|" + artUrl + "|" + contentText;
+
+        String lastNotificationKey = context.getString(R.string.pref_last_notification);
+        load(context, prefs);
+        boolean newDay = today.date != sLastDay;
+        if (!newDay && content.equals(sLastContent)) {
+            return;
+        }
+
+        // Once today's notification was dismissed, changes to today's weather don't bring it back
+        if (newDay || sDismissedDay != today.date) {
+            NotificationManager notificationManager =
+                    (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+            notificationManager.notify(WEATHER_NOTIFICATION_ID,
+                    compose(context, today, artUrl, contentText, !newDay));
+        }
+
+        sLastDay = today.date;
+        sLastContent = content;
+        prefs.edit()
+                .putLong(lastNotificationKey, sLastDay)
+                .putString(PREF_LAST_NOTIFICATION_CONTENT, sLastContent)
+                .apply();
+    }
+
+    /**
+     * Records that the user dismissed the notification showing the given day.
+     */
+    static synchronized void onDismissed(Context context, long day) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        load(context, prefs);
+        sDismissedDay = day;
+        prefs.edit().putLong(PREF_DISMISSED_DAY, day).apply();
+    }
+
+    // Must be called with the class lock held.
+    private static void load(Context context, SharedPreferences prefs) {
+        if (!sLoaded) {
+            sLastDay = prefs.getLong(context.getString(R.string.pref_last_notification), 0);
+            sLastContent = prefs.getString(PREF_LAST_NOTIFICATION_CONTENT, null);
+            sDismissedDay = prefs.getLong(PREF_DISMISSED_DAY, 0);
+            sLoaded = true;
+        }
+    }
+
+    private static Notification compose(Context context, WeatherRow today, String artUrl,
+                                        String contentText, boolean update) {
+        int weatherId = today.weatherId;
+        Resources resources = context.getResources();
+        int iconId = Utility.getIconResourceForWeatherCondition(weatherId);
+        int artResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
+
+        // On Honeycomb and higher devices, we can retrieve the size of the large icon
+        // Prior to that, we use a fixed size
+        @SuppressLint("InlinedApi")
+        int largeIconWidth = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
+                : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+        @SuppressLint("InlinedApi")
+        int largeIconHeight = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
+                : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+
+        // Retrieve the large icon
+        Bitmap largeIcon;
+        try {
+            largeIcon = Glide.with(context)
+                    .load(artUrl)
+                    .asBitmap()
+                    .error(artResourceId)
+                    .fitCenter()
+                    .into(largeIconWidth, largeIconHeight).get();
+        } catch (InterruptedException | ExecutionException e) {
+            Log.e(LOG_TAG, "Error retrieving large icon from " + artUrl, e);
+            largeIcon = BitmapFactory.decodeResource(resources, artResourceId);
+        }
+
+        // NotificationCompatBuilder is a very convenient way to build backward-compatible
+        // notifications.  Just throw in some data.
+        NotificationCompat.Builder builder =
+                new NotificationCompat.Builder(context)
+                        .setColor(resources.getColor(R.color.primary_light))
+                        .setSmallIcon(iconId)
+                        .setLargeIcon(largeIcon)
+                        .setContentTitle(context.getString(R.string.app_name))
+                        .setContentText(contentText)
+                        // Changes during the day replace the text without alerting again
+                        .setOnlyAlertOnce(update);
+
+        // Make something interesting happen when the user clicks on the notification.
+        // In this case, opening the app is sufficient.  The stack builder gives the started
+        // Activity an artificial back stack, so that navigating backward from it leads out of
+        // the application to the Home screen.
+        TaskStackBuilder stackBuilder = TaskStackBuilder.create(context);
+        stackBuilder.addNextIntent(new Intent(context, MainActivity.class));
+        builder.setContentIntent(
+                stackBuilder.getPendingIntent(0, PendingIntent.FLAG_UPDATE_CURRENT));
+
+        // Tells us when the user swipes it away, on every version
+        Intent deleteIntent = new Intent(context, NotificationDismissedReceiver.class)
+                .putExtra(NotificationDismissedReceiver.EXTRA_DAY, today.date);
+        builder.setDeleteIntent(PendingIntent.getBroadcast(context, 0, deleteIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT));
+        return builder.build();
+    }
+}
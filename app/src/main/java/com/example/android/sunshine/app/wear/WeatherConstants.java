@@ -6,6 +6,8 @@ public class WeatherConstants {
     public static final String KEY_LOW_TEMP = "low-temp";
     public static final String KEY_HIGH_TEMP = "high-temp";
     public static final String KEY_WEATHER_ICON = "weather-icon";
+    // A WeatherPayload
+    public static final String KEY_FORECAST = "forecast";
     public static final String KEY_TIMESTAMP = "timestamp";
     public static final String KEY_RANDOM = "random-number";
 }
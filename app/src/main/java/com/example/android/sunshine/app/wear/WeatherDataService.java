@@ -1,78 +1,142 @@
 package com.example.android.sunshine.app.wear;
 
 import android.app.IntentService;
+import android.content.Context;
 import android.content.Intent;
-import android.os.Bundle;
-import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
+import android.content.SharedPreferences;
+import android.text.format.Time;
 import android.util.Log;
+
+import com.example.android.sunshine.app.SettingsSnapshot;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherDao;
+import com.example.android.sunshine.app.data.WeatherRow;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
-import com.google.android.gms.common.api.ResultCallback;
 import com.google.android.gms.wearable.DataApi;
 import com.google.android.gms.wearable.PutDataMapRequest;
 import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
 
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
 /*
-    Sync adapter calls this intent to send weather data to wear device
+    Sync adapter calls this intent to send the coming days of forecast to wear device, encoded
+    as a WeatherPayload.  The data is only put into the Data Layer when it differs from what was
+    last sent, unless EXTRA_FORCE is set.
  */
-public class WeatherDataService extends IntentService implements
-        GoogleApiClient.OnConnectionFailedListener,
-        GoogleApiClient.ConnectionCallbacks {
+public class WeatherDataService extends IntentService {
+
+    public static final String TAG = WeatherDataService.class.getSimpleName();
+    public static final String EXTRA_FORCE = "force";
 
-    public final String TAG = WeatherDataService.class.getSimpleName();
-    private GoogleApiClient mGoogleApiClient;
-    private Intent mIntent;
+    private static final String PREFS_NAME = "wear_push_state";
+    private static final String KEY_PAYLOAD_HASH = "payload_hash";
+    private static final String KEY_REQUESTS_FROM_CACHE = "requests_from_cache";
+    private static final String KEY_REQUESTS_SYNCED = "requests_synced";
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final int FORECAST_DAYS = 7;
+
+    // Kept connected for the life of the process instead of once per intent
+    private static GoogleApiClient sGoogleApiClient;
 
     public WeatherDataService() {
         super("WeatherDataService");
     }
 
+    /**
+     * Sends the stored forecast of the preferred location to the watch.
+     *
+     * @param force send even if the watch was already sent the same forecast, e.g. because it
+     *              asked for it
+     */
+    public static void pushForecast(Context context, boolean force) {
+        context.startService(new Intent(context, WeatherDataService.class)
+                .putExtra(EXTRA_FORCE, force));
+    }
+
     @Override
     protected void onHandleIntent(Intent intent) {
-        mIntent = intent;
-        if (mGoogleApiClient == null) {
-            mGoogleApiClient = new GoogleApiClient.Builder(getApplicationContext())
-                    .addConnectionCallbacks(this)
-                    .addOnConnectionFailedListener(this)
-                    .addApi(Wearable.API)
-                    .build();
+        WeatherRow[] forecast = WeatherDao.readForecast(getContentResolver(),
+                Utility.getPreferredLocation(this),
+                WeatherContract.normalizeDate(System.currentTimeMillis()), FORECAST_DAYS);
+        if (forecast.length == 0) {
+            return;
         }
+        byte[] payload = encodeForecast(forecast, SettingsSnapshot.get(this).isMetric);
 
-        if (!mGoogleApiClient.isConnected()) {
-            mGoogleApiClient.connect();
+        // The timestamp is left out, so that a sync bringing the same weather sends nothing
+        int payloadHash = Arrays.hashCode(payload);
+        SharedPreferences prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        if (!intent.getBooleanExtra(EXTRA_FORCE, false)
+                && prefs.contains(KEY_PAYLOAD_HASH)
+                && prefs.getInt(KEY_PAYLOAD_HASH, 0) == payloadHash) {
+            return;
         }
-    }
 
-    @Override
-    public void onConnectionFailed(@NonNull ConnectionResult connectionResult) {
-        Log.d(TAG, "onConnectionFailed");    }
+        GoogleApiClient client = getClient(getApplicationContext());
+        if (!client.isConnected()) {
+            ConnectionResult result = client.blockingConnect(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (!result.isSuccess()) {
+                Log.d(TAG, "onConnectionFailed: " + result);
+                return;
+            }
+        }
 
-    @Override
-    public void onConnected(@Nullable Bundle bundle) {
-        if (mIntent != null) {
-            PutDataMapRequest weatherData = PutDataMapRequest.create(WeatherConstants.PATH_WEATHER_DATA);
-            weatherData.getDataMap().putLong(WeatherConstants.KEY_TIMESTAMP, mIntent.getLongExtra(WeatherConstants.KEY_TIMESTAMP, 0));
-            weatherData.getDataMap().putString(WeatherConstants.KEY_LOW_TEMP, mIntent.getStringExtra(WeatherConstants.KEY_LOW_TEMP));
-            weatherData.getDataMap().putString(WeatherConstants.KEY_HIGH_TEMP, mIntent.getStringExtra(WeatherConstants.KEY_HIGH_TEMP));
-            weatherData.getDataMap().putInt(WeatherConstants.KEY_WEATHER_ICON, mIntent.getIntExtra(WeatherConstants.KEY_WEATHER_ICON, 0));
-            PutDataRequest request = weatherData.asPutDataRequest();
-            request.setUrgent();
-
-            Wearable.DataApi.putDataItem(mGoogleApiClient, request)
-                    .setResultCallback(new ResultCallback<DataApi.DataItemResult>() {
-                        @Override
-                        public void onResult(@NonNull DataApi.DataItemResult dataItemResult) {
-                           // Log.d(TAG, "onConnected ---- onResult: " + dataItemResult.getStatus());
-                            mGoogleApiClient.disconnect();
-                        }
-                    });
+        PutDataMapRequest weatherData = PutDataMapRequest.create(WeatherConstants.PATH_WEATHER_DATA);
+        weatherData.getDataMap().putLong(WeatherConstants.KEY_TIMESTAMP, System.currentTimeMillis());
+        weatherData.getDataMap().putByteArray(WeatherConstants.KEY_FORECAST, payload);
+        PutDataRequest request = weatherData.asPutDataRequest();
+        request.setUrgent();
+
+        DataApi.DataItemResult dataItemResult = Wearable.DataApi.putDataItem(client, request)
+                .await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (dataItemResult.getStatus().isSuccess()) {
+            prefs.edit().putInt(KEY_PAYLOAD_HASH, payloadHash).apply();
+        } else {
+            Log.d(TAG, "putDataItem failed: " + dataItemResult.getStatus());
         }
     }
 
-    @Override
-    public void onConnectionSuspended(int i) {
-        Log.d(TAG, "onConnectionSuspended");
+    static byte[] encodeForecast(WeatherRow[] forecast, boolean isMetric) {
+        // The dates are the start of a day in the local time zone, each with the offset in
+        // effect on that day, which differs across a daylight saving change
+        Time time = new Time();
+        WeatherPayload.Day[] days = new WeatherPayload.Day[forecast.length];
+        for (int i = 0; i < forecast.length; i++) {
+            WeatherRow row = forecast[i];
+            time.set(row.date);
+            int epochDay = Time.getJulianDay(row.date, time.gmtoff) - Time.EPOCH_JULIAN_DAY;
+            days[i] = new WeatherPayload.Day(epochDay, row.weatherId, row.high, row.low);
+        }
+        return WeatherPayload.encode(isMetric, days);
+    }
+
+    /**
+     * Counts a data request from the watch, by whether it was answered from the stored
+     * forecast or needed a sync.
+     */
+    static void recordWatchRequest(Context context, boolean fromCache) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        String key = fromCache ? KEY_REQUESTS_FROM_CACHE : KEY_REQUESTS_SYNCED;
+        prefs.edit().putLong(key, prefs.getLong(key, 0) + 1).apply();
+    }
+
+    public static void dump(Context context, PrintWriter writer) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+        writer.println("Watch data requests: fromCache=" + prefs.getLong(KEY_REQUESTS_FROM_CACHE, 0)
+                + " synced=" + prefs.getLong(KEY_REQUESTS_SYNCED, 0));
+    }
+
+    private static synchronized GoogleApiClient getClient(Context appContext) {
+        if (sGoogleApiClient == null) {
+            sGoogleApiClient = new GoogleApiClient.Builder(appContext)
+                    .addApi(Wearable.API)
+                    .build();
+        }
+        return sGoogleApiClient;
     }
 }
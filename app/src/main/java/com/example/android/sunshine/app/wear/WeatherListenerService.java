@@ -1,11 +1,14 @@
 package com.example.android.sunshine.app.wear;
 
 
+import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.WeatherDao;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
@@ -15,13 +18,16 @@ import com.google.android.gms.wearable.DataItem;
 import com.google.android.gms.wearable.Wearable;
 import com.google.android.gms.wearable.WearableListenerService;
 
-/* Listens for weather data request from wear device. Has sync adapter send data if received.*/
+/* Listens for weather data request from wear device. Answers from the stored forecast while it
+   is fresh, and only has the sync adapter fetch new data once it is stale.*/
 
 public class WeatherListenerService extends WearableListenerService implements
         GoogleApiClient.OnConnectionFailedListener,
         GoogleApiClient.ConnectionCallbacks {
 
     private static final String TAG = WeatherListenerService.class.getSimpleName();
+    // The stored forecast is served to the watch for as long as a periodic sync would keep it
+    private static final long FRESHNESS_WINDOW_MILLIS = SunshineSyncAdapter.SYNC_INTERVAL * 1000L;
     private GoogleApiClient mGoogleApiClient;
 
     @Override
@@ -46,11 +52,28 @@ public class WeatherListenerService extends WearableListenerService implements
             }
             DataItem dataItem = dataEvent.getDataItem();
             if (dataItem.getUri().getPath().equals(WeatherConstants.PATH_WEATHER_DATA_REQUEST)) {
-                SunshineSyncAdapter.syncImmediately(getApplicationContext());
+                onWeatherDataRequest();
             }
         }
     }
 
+    private void onWeatherDataRequest() {
+        Context context = getApplicationContext();
+        // The today summary is rebuilt on every write and at midnight, so its own update time
+        // says nothing about how old the weather is; only a network sync brings new weather.
+        long sinceSync = System.currentTimeMillis() - SunshineSyncAdapter.getLastSyncTime(context);
+        boolean fresh = sinceSync < FRESHNESS_WINDOW_MILLIS
+                && null != WeatherDao.readToday(context.getContentResolver(),
+                        Utility.getPreferredLocation(context));
+        WeatherDataService.recordWatchRequest(context, fresh);
+        if (fresh) {
+            // The watch asked, so it gets the values even if they were sent before
+            WeatherDataService.pushForecast(context, true);
+        } else {
+            SunshineSyncAdapter.syncImmediately(context);
+        }
+    }
+
     @Override
     public void onConnectionFailed(@NonNull ConnectionResult connectionResult) {
         Log.d(TAG, "onConnectionFailed");
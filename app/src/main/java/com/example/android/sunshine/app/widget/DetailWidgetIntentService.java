@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.app.IntentService;
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Intent;
+
+import com.example.android.sunshine.app.R;
+
+import java.util.Arrays;
+
+/**
+ * IntentService which tells the detail widgets to reload their list after new data arrived,
+ * unless what they would show hasn't changed.
+ */
+public class DetailWidgetIntentService extends IntentService {
+    public DetailWidgetIntentService() {
+        super("DetailWidgetIntentService");
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(this);
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(this,
+                DetailWidgetProvider.class));
+        if (appWidgetIds.length == 0) {
+            return;
+        }
+
+        // All detail widgets show the same list, so they share one fingerprint
+        long fingerprint = fingerprintForecast();
+        WidgetRenderState renderState = new WidgetRenderState(this);
+        int[] changedIds = new int[appWidgetIds.length];
+        int changedCount = 0;
+        for (int appWidgetId : appWidgetIds) {
+            if (renderState.shouldRefresh(appWidgetId, fingerprint, false)) {
+                changedIds[changedCount++] = appWidgetId;
+            }
+        }
+
+        if (changedCount > 0) {
+            changedIds = Arrays.copyOf(changedIds, changedCount);
+            appWidgetManager.notifyAppWidgetViewDataChanged(changedIds, R.id.widget_list);
+            renderState.refreshed(changedIds, fingerprint);
+        }
+        renderState.save();
+    }
+
+    /**
+     * Fingerprints the rows as {@link DetailWidgetRemoteViewsService} would show them.
+     */
+    private long fingerprintForecast() {
+        DetailWidgetRow[] rows = DetailWidgetRow.load(this);
+        WidgetRenderState.Fingerprint fingerprint = new WidgetRenderState.Fingerprint()
+                .add(R.layout.widget_detail)
+                .add(rows.length);
+        for (DetailWidgetRow row : rows) {
+            fingerprint.add(row.iconResource)
+                    .add(row.artUrl)
+                    .add(row.dateText)
+                    .add(row.description)
+                    .add(row.highText)
+                    .add(row.lowText);
+        }
+        return fingerprint.get();
+    }
+}
@@ -4,7 +4,6 @@ import android.annotation.TargetApi;
 import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
@@ -52,16 +51,28 @@ public class DetailWidgetProvider extends AppWidgetProvider {
             // Tell the AppWidgetManager to perform an update on the current app widget
             appWidgetManager.updateAppWidget(appWidgetId, views);
         }
+
+        // These widgets load their list afresh, so whatever they showed before no longer
+        // counts as up to date
+        WidgetRenderState renderState = new WidgetRenderState(context);
+        renderState.forget(appWidgetIds);
+        renderState.save();
+    }
+
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        WidgetRenderState renderState = new WidgetRenderState(context);
+        renderState.forget(appWidgetIds);
+        renderState.save();
     }
 
     @Override
     public void onReceive(@NonNull Context context, @NonNull Intent intent) {
         super.onReceive(context, intent);
         if (SunshineSyncAdapter.ACTION_DATA_UPDATED.equals(intent.getAction())) {
-            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-            int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
-                    new ComponentName(context, getClass()));
-            appWidgetManager.notifyAppWidgetViewDataChanged(appWidgetIds, R.id.widget_list);
+            // Finding out whether the list changed means reading it, so that is done off the
+            // main thread
+            context.startService(new Intent(context, DetailWidgetIntentService.class));
         }
     }
 
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+
+import com.example.android.sunshine.app.SettingsSnapshot;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherDao;
+import com.example.android.sunshine.app.data.WeatherRow;
+
+/**
+ * One row of the detail widget, formatted and ready to be put into RemoteViews.
+ *
+ * The rows are built in one go whenever the widget's data changes, so that building the views
+ * for a row reads neither the provider nor the preferences.
+ */
+final class DetailWidgetRow {
+    final long id;
+    final String dateText;
+    final String description;
+    final String highText;
+    final String lowText;
+    final int iconResource;
+    // Art pack image to show instead of the icon; null when using the built-in graphics
+    final String artUrl;
+    final Uri detailUri;
+    // Loaded from artUrl by the widget; null until then, or if it couldn't be loaded
+    Bitmap art;
+
+    private DetailWidgetRow(Context context, WeatherRow row, SettingsSnapshot settings) {
+        id = row.id;
+        dateText = Utility.getFriendlyDayString(context, row.date, false);
+        description = row.description;
+        highText = Utility.formatTemperature(context, row.high, settings.isMetric);
+        lowText = Utility.formatTemperature(context, row.low, settings.isMetric);
+        iconResource = Utility.getIconResourceForWeatherCondition(row.weatherId);
+        artUrl = settings.usingLocalGraphics
+                ? null : Utility.getArtUrlForWeatherCondition(context, row.weatherId);
+        detailUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
+                settings.locationSetting, row.date);
+    }
+
+    /**
+     * Reads the forecast the widget shows and formats it with the current settings.
+     */
+    static DetailWidgetRow[] load(Context context) {
+        SettingsSnapshot settings = SettingsSnapshot.get(context);
+        WeatherRow[] rows = WeatherDao.readForecast(context.getContentResolver(),
+                settings.locationSetting, System.currentTimeMillis(), 0);
+        DetailWidgetRow[] formatted = new DetailWidgetRow[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            formatted[i] = new DetailWidgetRow(context, rows[i], settings);
+        }
+        return formatted;
+    }
+}
@@ -21,8 +21,6 @@ import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.content.ComponentName;
 import android.content.Intent;
-import android.database.Cursor;
-import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.util.DisplayMetrics;
@@ -32,23 +30,29 @@ import android.widget.RemoteViews;
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
-import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.TodaySummary;
+import com.example.android.sunshine.app.data.WeatherDao;
+
+import java.util.Arrays;
 
 /**
  * IntentService which handles updating all Today widgets with the latest data
  */
 public class TodayWidgetIntentService extends IntentService {
-    private static final String[] FORECAST_COLUMNS = {
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
-            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP
+    /**
+     * Set to true to refresh every widget, even those that already show the current data.
+     */
+    static final String EXTRA_FORCE = "force";
+
+    // The layouts a Today widget can have, from narrowest to widest, indexed by LAYOUT_*
+    private static final int LAYOUT_SMALL = 0;
+    private static final int LAYOUT_DEFAULT = 1;
+    private static final int LAYOUT_LARGE = 2;
+    private static final int[] LAYOUTS = {
+            R.layout.widget_today_small,
+            R.layout.widget_today,
+            R.layout.widget_today_large
     };
-    // these indices must match the projection
-    private static final int INDEX_WEATHER_ID = 0;
-    private static final int INDEX_SHORT_DESC = 1;
-    private static final int INDEX_MAX_TEMP = 2;
-    private static final int INDEX_MIN_TEMP = 3;
 
     public TodayWidgetIntentService() {
         super("TodayWidgetIntentService");
@@ -63,43 +67,64 @@ public class TodayWidgetIntentService extends IntentService {
 
         // Get today's data from the ContentProvider
         String location = Utility.getPreferredLocation(this);
-        Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
-                location, System.currentTimeMillis());
-        Cursor data = getContentResolver().query(weatherForLocationUri, FORECAST_COLUMNS, null,
-                null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
-        if (data == null) {
-            return;
-        }
-        if (!data.moveToFirst()) {
-            data.close();
+        TodaySummary today = WeatherDao.readToday(getContentResolver(), location);
+        if (today == null) {
             return;
         }
 
-        // Extract the weather data from the Cursor
-        int weatherId = data.getInt(INDEX_WEATHER_ID);
+        // Extract the weather data from the summary
+        int weatherId = today.weatherId;
         int weatherArtResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
-        String description = data.getString(INDEX_SHORT_DESC);
-        double maxTemp = data.getDouble(INDEX_MAX_TEMP);
-        double minTemp = data.getDouble(INDEX_MIN_TEMP);
-        String formattedMaxTemperature = Utility.formatTemperature(this, maxTemp);
-        String formattedMinTemperature = Utility.formatTemperature(this, minTemp);
-        data.close();
-
-        // Perform this loop procedure for each Today widget
+        String description = today.description;
+        boolean isMetric = Utility.isMetric(this);
+        String formattedMaxTemperature = today.getFormattedHigh(isMetric);
+        String formattedMinTemperature = today.getFormattedLow(isMetric);
+
+        // What a widget with each layout shows, to leave out the widgets that show it already
+        long[] fingerprints = new long[LAYOUTS.length];
+        for (int layout = 0; layout < LAYOUTS.length; layout++) {
+            fingerprints[layout] = new WidgetRenderState.Fingerprint()
+                    .add(LAYOUTS[layout])
+                    .add(weatherArtResourceId)
+                    .add(description)
+                    .add(formattedMaxTemperature)
+                    .add(formattedMinTemperature)
+                    .get();
+        }
+        boolean force = intent.getBooleanExtra(EXTRA_FORCE, false);
+        WidgetRenderState renderState = new WidgetRenderState(this);
+
+        // Sort the widgets by the layout their width calls for.  All widgets with the same
+        // layout look the same, so each layout is built once and sent to all of them together.
+        int defaultWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
+        int largeWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_large_width);
+        int[][] widgetIdsByLayout = new int[LAYOUTS.length][appWidgetIds.length];
+        int[] widgetCounts = new int[LAYOUTS.length];
         for (int appWidgetId : appWidgetIds) {
-            // Find the correct layout based on the widget's width
             int widgetWidth = getWidgetWidth(appWidgetManager, appWidgetId);
-            int defaultWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
-            int largeWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_large_width);
-            int layoutId;
+            int layout;
             if (widgetWidth >= largeWidth) {
-                layoutId = R.layout.widget_today_large;
+                layout = LAYOUT_LARGE;
             } else if (widgetWidth >= defaultWidth) {
-                layoutId = R.layout.widget_today;
+                layout = LAYOUT_DEFAULT;
             } else {
-                layoutId = R.layout.widget_today_small;
+                layout = LAYOUT_SMALL;
             }
-            RemoteViews views = new RemoteViews(getPackageName(), layoutId);
+            if (renderState.shouldRefresh(appWidgetId, fingerprints[layout], force)) {
+                widgetIdsByLayout[layout][widgetCounts[layout]++] = appWidgetId;
+            }
+        }
+
+        // Create an Intent to launch MainActivity
+        Intent launchIntent = new Intent(this, MainActivity.class);
+        PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
+
+        // Perform this loop procedure for each layout in use
+        for (int layout = 0; layout < LAYOUTS.length; layout++) {
+            if (widgetCounts[layout] == 0) {
+                continue;
+            }
+            RemoteViews views = new RemoteViews(getPackageName(), LAYOUTS[layout]);
 
             // Add the data to the RemoteViews
             views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
@@ -110,15 +135,14 @@ public class TodayWidgetIntentService extends IntentService {
             views.setTextViewText(R.id.widget_description, description);
             views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
             views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
-
-            // Create an Intent to launch MainActivity
-            Intent launchIntent = new Intent(this, MainActivity.class);
-            PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
             views.setOnClickPendingIntent(R.id.widget, pendingIntent);
 
-            // Tell the AppWidgetManager to perform an update on the current app widget
-            appWidgetManager.updateAppWidget(appWidgetId, views);
+            // Tell the AppWidgetManager to perform an update on all widgets with this layout
+            int[] layoutWidgetIds = Arrays.copyOf(widgetIdsByLayout[layout], widgetCounts[layout]);
+            appWidgetManager.updateAppWidget(layoutWidgetIds, views);
+            renderState.refreshed(layoutWidgetIds, fingerprints[layout]);
         }
+        renderState.save();
     }
 
     private int getWidgetWidth(AppWidgetManager appWidgetManager, int appWidgetId) {
@@ -34,7 +34,16 @@ public class TodayWidgetProvider extends AppWidgetProvider {
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        context.startService(new Intent(context, TodayWidgetIntentService.class));
+        // The system asked for it, e.g. for a new widget or after a reboot, so update them all
+        context.startService(new Intent(context, TodayWidgetIntentService.class)
+                .putExtra(TodayWidgetIntentService.EXTRA_FORCE, true));
+    }
+
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        WidgetRenderState renderState = new WidgetRenderState(context);
+        renderState.forget(appWidgetIds);
+        renderState.save();
     }
 
     @Override
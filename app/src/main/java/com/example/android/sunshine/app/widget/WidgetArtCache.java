@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.FutureTarget;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Weather art for the widgets, decoded once per image at the size of the widget's icon and
+ * then reused across rows and refreshes.
+ *
+ * A forecast only uses a handful of conditions, so a few entries cover a whole widget.  The
+ * key is the art URL, which names both the art pack and the condition.
+ */
+class WidgetArtCache {
+    private static final String LOG_TAG = WidgetArtCache.class.getSimpleName();
+
+    // Enough for every condition an art pack has art for
+    private static final int MAX_ENTRIES = 16;
+
+    private static final LruCache<String, Bitmap> sCache = new LruCache<>(MAX_ENTRIES);
+
+    private WidgetArtCache() {
+    }
+
+    /**
+     * Returns the art at the given URL scaled to fit sizePx, or null if it can't be loaded.
+     * Blocks while the art is loaded, so it must not be called on the main thread.
+     */
+    static Bitmap get(Context context, String artUrl, int sizePx) {
+        String key = artUrl + '@' + sizePx;
+        Bitmap bitmap = sCache.get(key);
+        if (null != bitmap) {
+            return bitmap;
+        }
+
+        FutureTarget<Bitmap> target = Glide.with(context)
+                .load(artUrl)
+                .asBitmap()
+                .fitCenter()
+                .into(sizePx, sizePx);
+        try {
+            // The bitmap belongs to Glide, which reuses it once the request is cleared, so the
+            // cache keeps its own copy.
+            Bitmap loaded = target.get();
+            // getConfig() is null for some decoded formats, which copy() doesn't accept
+            Bitmap.Config config = loaded.getConfig();
+            bitmap = loaded.copy(null != config ? config : Bitmap.Config.ARGB_8888, false);
+        } catch (InterruptedException | ExecutionException e) {
+            Log.e(LOG_TAG, "Error retrieving widget art from " + artUrl, e);
+            return null;
+        } finally {
+            Glide.clear(target);
+        }
+        if (null != bitmap) {
+            sCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.io.PrintWriter;
+
+/**
+ * Remembers a fingerprint of what each widget currently shows, so that a refresh which would
+ * render exactly the same thing again can be skipped.
+ *
+ * Fingerprints are kept in their own preferences file so they survive the process, together
+ * with running counts of applied and skipped refreshes.  Use one instance per update pass,
+ * report every refresh once it was pushed with {@link #refreshed}, and call {@link #save()} at
+ * the end of the pass.
+ */
+public class WidgetRenderState {
+    private static final String PREFS_NAME = "widget_render_state";
+    private static final String KEY_FINGERPRINT_PREFIX = "fingerprint_";
+    private static final String KEY_APPLIED = "refreshes_applied";
+    private static final String KEY_SKIPPED = "refreshes_skipped";
+
+    private final SharedPreferences mPrefs;
+    private final SharedPreferences.Editor mEditor;
+    private int mApplied;
+    private int mSkipped;
+
+    WidgetRenderState(Context context) {
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mEditor = mPrefs.edit();
+    }
+
+    /**
+     * Returns whether the widget needs to be refreshed to show content with the given
+     * fingerprint.
+     *
+     * @param force refresh even if the widget already shows this content, e.g. because the
+     *              system asked for an update
+     */
+    boolean shouldRefresh(int appWidgetId, long fingerprint, boolean force) {
+        String key = KEY_FINGERPRINT_PREFIX + appWidgetId;
+        if (!force && mPrefs.contains(key) && mPrefs.getLong(key, 0) == fingerprint) {
+            mSkipped++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records that the widgets now show content with the given fingerprint.  Only call this
+     * once the update was pushed, so a pass that dies half way is redone the next time.
+     */
+    void refreshed(int[] appWidgetIds, long fingerprint) {
+        for (int appWidgetId : appWidgetIds) {
+            mEditor.putLong(KEY_FINGERPRINT_PREFIX + appWidgetId, fingerprint);
+        }
+        mApplied += appWidgetIds.length;
+    }
+
+    /**
+     * Drops the fingerprints of widgets that were removed.
+     */
+    void forget(int[] appWidgetIds) {
+        for (int appWidgetId : appWidgetIds) {
+            mEditor.remove(KEY_FINGERPRINT_PREFIX + appWidgetId);
+        }
+    }
+
+    void save() {
+        mEditor.apply();
+        addCounts(mPrefs, mApplied, mSkipped);
+        mApplied = 0;
+        mSkipped = 0;
+    }
+
+    /*
+        Passes from different widget services can save at the same time, each with its own
+        instance, so the counters are read and written under one lock.  apply() updates the
+        in-memory preferences before it returns, so the next caller reads the new totals.
+     */
+    private static synchronized void addCounts(SharedPreferences prefs, int applied, int skipped) {
+        if (applied == 0 && skipped == 0) {
+            return;
+        }
+        prefs.edit()
+                .putLong(KEY_APPLIED, prefs.getLong(KEY_APPLIED, 0) + applied)
+                .putLong(KEY_SKIPPED, prefs.getLong(KEY_SKIPPED, 0) + skipped)
+                .apply();
+    }
+
+    public static void dump(Context context, PrintWriter writer) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        writer.println("Widget refreshes: applied=" + prefs.getLong(KEY_APPLIED, 0)
+                + " skipped=" + prefs.getLong(KEY_SKIPPED, 0));
+    }
+
+    /**
+     * Builds a 64-bit FNV-1a hash over everything a widget renders.
+     */
+    static class Fingerprint {
+        private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+        private static final long PRIME = 0x100000001b3L;
+
+        private long mHash = OFFSET_BASIS;
+
+        Fingerprint add(long value) {
+            for (int i = 0; i < 8; i++) {
+                mHash = (mHash ^ (value & 0xff)) * PRIME;
+                value >>>= 8;
+            }
+            return this;
+        }
+
+        Fingerprint add(boolean value) {
+            return add(value ? 1 : 0);
+        }
+
+        Fingerprint add(String value) {
+            if (null == value) {
+                return add(-1);
+            }
+            add(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                mHash = (mHash ^ (c & 0xff)) * PRIME;
+                mHash = (mHash ^ (c >>> 8)) * PRIME;
+            }
+            return this;
+        }
+
+        long get() {
+            return mHash;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.android.sunshine.app.wear;
+
+/*
+    The binary encoding of the forecast the phone sends to the watch under KEY_FORECAST.
+    It lives in the shared module, so the app and the watch always agree on it.
+
+    Layout, big-endian:
+        byte    version       VERSION, bumped only for changes old watches can't read
+        byte    flags         FLAG_METRIC if the user wants temperatures in Celsius
+        u16     first day     days since 1970-01-01 of the first day
+        byte    day count
+        byte    day size      bytes per day; newer versions may append fields to a day, and
+                              older decoders skip them
+        then for every day:
+        byte    day offset    days after the first day
+        u16     weather id    OpenWeatherMap condition code
+        s16     high          tenths of a degree Celsius
+        s16     low           tenths of a degree Celsius
+ */
+public class WeatherPayload {
+
+    public static final int VERSION = 1;
+    public static final int FLAG_METRIC = 1;
+    public static final int MAX_DAYS = 255;
+
+    static final int HEADER_SIZE = 6;
+    static final int DAY_SIZE = 7;
+
+    public static class Day {
+        // Days since 1970-01-01
+        public final int epochDay;
+        public final int weatherId;
+        // Degrees Celsius
+        public final double high;
+        public final double low;
+
+        public Day(int epochDay, int weatherId, double high, double low) {
+            this.epochDay = epochDay;
+            this.weatherId = weatherId;
+            this.high = high;
+            this.low = low;
+        }
+    }
+
+    public final boolean isMetric;
+    public final Day[] days;
+
+    private WeatherPayload(boolean isMetric, Day[] days) {
+        this.isMetric = isMetric;
+        this.days = days;
+    }
+
+    /**
+     * @param days at most MAX_DAYS days in ascending order, all within 255 days of the first
+     */
+    public static byte[] encode(boolean isMetric, Day[] days) {
+        if (days.length > MAX_DAYS) {
+            throw new IllegalArgumentException("Too many days: " + days.length);
+        }
+        int firstDay = days.length > 0 ? days[0].epochDay : 0;
+        byte[] data = new byte[HEADER_SIZE + days.length * DAY_SIZE];
+        data[0] = VERSION;
+        data[1] = (byte) (isMetric ? FLAG_METRIC : 0);
+        putShort(data, 2, firstDay);
+        data[4] = (byte) days.length;
+        data[5] = DAY_SIZE;
+        int offset = HEADER_SIZE;
+        for (Day day : days) {
+            int dayOffset = day.epochDay - firstDay;
+            if (dayOffset < 0 || dayOffset > 0xff) {
+                throw new IllegalArgumentException("Day out of order: " + day.epochDay);
+            }
+            data[offset] = (byte) dayOffset;
+            putShort(data, offset + 1, day.weatherId);
+            putShort(data, offset + 3, toFixedPoint(day.high));
+            putShort(data, offset + 5, toFixedPoint(day.low));
+            offset += DAY_SIZE;
+        }
+        return data;
+    }
+
+    /**
+     * @return the payload, or null if it is truncated or from a newer, incompatible version
+     */
+    public static WeatherPayload decode(byte[] data) {
+        if (null == data || data.length < HEADER_SIZE || (data[0] & 0xff) > VERSION) {
+            return null;
+        }
+        boolean isMetric = (data[1] & FLAG_METRIC) != 0;
+        int firstDay = getUnsignedShort(data, 2);
+        int count = data[4] & 0xff;
+        int daySize = data[5] & 0xff;
+        if (daySize < DAY_SIZE || data.length < HEADER_SIZE + count * daySize) {
+            return null;
+        }
+        Day[] days = new Day[count];
+        int offset = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            days[i] = new Day(firstDay + (data[offset] & 0xff),
+                    getUnsignedShort(data, offset + 1),
+                    getShort(data, offset + 3) / 10.0,
+                    getShort(data, offset + 5) / 10.0);
+            offset += daySize;
+        }
+        return new WeatherPayload(isMetric, days);
+    }
+
+    /**
+     * @return the day with the given date, or null if the payload doesn't have it
+     */
+    public Day getDay(int epochDay) {
+        for (Day day : days) {
+            if (day.epochDay == epochDay) {
+                return day;
+            }
+        }
+        return null;
+    }
+
+    private static int toFixedPoint(double degrees) {
+        long tenths = Math.round(degrees * 10);
+        return (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, tenths));
+    }
+
+    private static void putShort(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >> 8);
+        data[offset + 1] = (byte) value;
+    }
+
+    private static int getUnsignedShort(byte[] data, int offset) {
+        return ((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff);
+    }
+
+    private static short getShort(byte[] data, int offset) {
+        return (short) getUnsignedShort(data, offset);
+    }
+}
@@ -45,6 +45,7 @@ import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.wearable.Wearable;
 
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
@@ -70,6 +71,32 @@ public class WatchFace extends CanvasWatchFaceService {
      */
     private static final int MSG_UPDATE_TIME = 0;
 
+    /**
+     * Weather icons indexed by OpenWeatherMap condition code - FIRST_WEATHER_ID, -1 where there
+     * is no icon.  Same mapping as Utility.getIconResourceForWeatherCondition in the app.
+     */
+    private static final int FIRST_WEATHER_ID = 200;
+    private static final int[] WEATHER_ICONS = new int[804 - FIRST_WEATHER_ID + 1];
+
+    static {
+        Arrays.fill(WEATHER_ICONS, -1);
+        fillWeatherIcons(200, 232, R.drawable.ic_storm);
+        fillWeatherIcons(300, 321, R.drawable.ic_light_rain);
+        fillWeatherIcons(500, 504, R.drawable.ic_rain);
+        fillWeatherIcons(511, 511, R.drawable.ic_snow);
+        fillWeatherIcons(520, 531, R.drawable.ic_rain);
+        fillWeatherIcons(600, 622, R.drawable.ic_snow);
+        fillWeatherIcons(701, 761, R.drawable.ic_fog);
+        fillWeatherIcons(781, 781, R.drawable.ic_storm);
+        fillWeatherIcons(800, 800, R.drawable.ic_clear);
+        fillWeatherIcons(801, 801, R.drawable.ic_light_clouds);
+        fillWeatherIcons(802, 804, R.drawable.ic_cloudy);
+    }
+
+    private static void fillWeatherIcons(int firstId, int lastId, int icon) {
+        Arrays.fill(WEATHER_ICONS, firstId - FIRST_WEATHER_ID, lastId - FIRST_WEATHER_ID + 1, icon);
+    }
+
     @Override
     public Engine onCreateEngine() {
         return new Engine();
@@ -454,30 +481,11 @@ public class WatchFace extends CanvasWatchFaceService {
         }
 
         private int getIconResourceForWeatherCondition(int weatherId) {
-            if (weatherId >= 200 && weatherId <= 232) {
-                return R.drawable.ic_storm;
-            } else if (weatherId >= 300 && weatherId <= 321) {
-                return R.drawable.ic_light_rain;
-            } else if (weatherId >= 500 && weatherId <= 504) {
-                return R.drawable.ic_rain;
-            } else if (weatherId == 511) {
-                return R.drawable.ic_snow;
-            } else if (weatherId >= 520 && weatherId <= 531) {
-                return R.drawable.ic_rain;
-            } else if (weatherId >= 600 && weatherId <= 622) {
-                return R.drawable.ic_snow;
-            } else if (weatherId >= 701 && weatherId <= 761) {
-                return R.drawable.ic_fog;
-            } else if (weatherId == 761 || weatherId == 781) {
-                return R.drawable.ic_storm;
-            } else if (weatherId == 800) {
-                return R.drawable.ic_clear;
-            } else if (weatherId == 801) {
-                return R.drawable.ic_light_clouds;
-            } else if (weatherId >= 802 && weatherId <= 804) {
-                return R.drawable.ic_cloudy;
+            int index = weatherId - FIRST_WEATHER_ID;
+            if (index < 0 || index >= WEATHER_ICONS.length) {
+                return -1;
             }
-            return -1;
+            return WEATHER_ICONS[index];
         }
 
         private void calcWeatherDataLayout() {
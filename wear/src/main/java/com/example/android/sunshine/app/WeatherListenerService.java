@@ -5,8 +5,10 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.content.LocalBroadcastManager;
+import android.text.format.Time;
 import android.util.Log;
 
+import com.example.android.sunshine.app.wear.WeatherPayload;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.api.ResultCallback;
@@ -67,16 +69,41 @@ public class WeatherListenerService extends WearableListenerService implements
             if (dataItem.getUri().getPath().equals(WeatherConstants.PATH_WEATHER_DATA)) {
                 DataMapItem dataMapItem = DataMapItem.fromDataItem(dataItem);
                 DataMap dataMap = dataMapItem.getDataMap();
+                WeatherPayload payload = WeatherPayload.decode(
+                        dataMap.getByteArray(WeatherConstants.KEY_FORECAST));
+                if (payload == null) {
+                    Log.w(TAG, "Ignoring weather data the watch can't read");
+                    continue;
+                }
+                WeatherPayload.Day today = payload.getDay(getToday());
+                if (today == null) {
+                    continue;
+                }
                 Intent intent = new Intent(WeatherConstants.PATH_WEATHER_DATA);
                 intent.putExtra(WeatherConstants.KEY_TIMESTAMP, dataMap.getLong(WeatherConstants.KEY_TIMESTAMP));
-                intent.putExtra(WeatherConstants.KEY_LOW_TEMP, dataMap.getString(WeatherConstants.KEY_LOW_TEMP));
-                intent.putExtra(WeatherConstants.KEY_HIGH_TEMP, dataMap.getString(WeatherConstants.KEY_HIGH_TEMP));
-                intent.putExtra(WeatherConstants.KEY_WEATHER_ICON, dataMap.getInt(WeatherConstants.KEY_WEATHER_ICON));
+                intent.putExtra(WeatherConstants.KEY_LOW_TEMP, formatTemperature(today.low, payload.isMetric));
+                intent.putExtra(WeatherConstants.KEY_HIGH_TEMP, formatTemperature(today.high, payload.isMetric));
+                intent.putExtra(WeatherConstants.KEY_WEATHER_ICON, today.weatherId);
                 LocalBroadcastManager.getInstance(getApplicationContext()).sendBroadcast(intent);
             }
         }
     }
 
+    // Days since 1970-01-01 of the current day in the watch's time zone
+    private static int getToday() {
+        Time time = new Time();
+        time.setToNow();
+        return Time.getJulianDay(System.currentTimeMillis(), time.gmtoff) - Time.EPOCH_JULIAN_DAY;
+    }
+
+    // The payload is always in Celsius; this converts for users who prefer Fahrenheit
+    private String formatTemperature(double temperature, boolean isMetric) {
+        if (!isMetric) {
+            temperature = (temperature * 1.8) + 32;
+        }
+        return getString(R.string.format_temperature, temperature);
+    }
+
     @Override
     public void onConnectionFailed(@NonNull ConnectionResult connectionResult) {
         Log.d(TAG, "onConnectionFailed");